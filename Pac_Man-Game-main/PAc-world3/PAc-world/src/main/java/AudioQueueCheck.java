@@ -0,0 +1,79 @@
+import utils.AudioCommandQueue;
+import java.util.Arrays;
+
+/**
+ * Stress check for AudioCommandQueue. Several producer threads offer
+ * numbered commands into a small queue while one consumer polls, so the
+ * queue overflows and drops constantly. Every command must be either
+ * received or counted as dropped, and each producer's commands must arrive
+ * in the order they were offered. Exits with status 1 if either fails.
+ *
+ * Run with: java -cp target/classes AudioQueueCheck [producers] [commands per producer]
+ */
+public class AudioQueueCheck {
+    private static final int CAPACITY = 64;
+    // Producer number above, sequence number below
+    private static final int SEQUENCE_BITS = 24;
+
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int perProducer = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        if (perProducer > 1 << SEQUENCE_BITS) {
+            throw new IllegalArgumentException("at most " + (1 << SEQUENCE_BITS) + " commands per producer");
+        }
+
+        AudioCommandQueue queue = new AudioCommandQueue(CAPACITY);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(producer << SEQUENCE_BITS | i);
+                }
+            }, "producer-" + p);
+            threads[p].start();
+        }
+
+        long received = 0;
+        int[] lastSequence = new int[producers];
+        Arrays.fill(lastSequence, -1);
+        boolean inOrder = true;
+        boolean producing = true;
+        long started = System.nanoTime();
+        while (producing || !queue.isEmpty()) {
+            long entry = queue.poll();
+            if (entry == AudioCommandQueue.EMPTY) {
+                producing = false;
+                for (Thread thread : threads) {
+                    producing |= thread.isAlive();
+                }
+                // Let the producers run, even on a single core
+                Thread.yield();
+                continue;
+            }
+            int command = AudioCommandQueue.command(entry);
+            int producer = command >>> SEQUENCE_BITS;
+            int sequence = command & ((1 << SEQUENCE_BITS) - 1);
+            if (sequence <= lastSequence[producer]) {
+                inOrder = false;
+            }
+            lastSequence[producer] = sequence;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long offered = (long) producers * perProducer;
+        long dropped = queue.getDropped();
+        boolean accounted = received + dropped == offered;
+        System.out.printf("%d producers, %d offered in %.0f ms: %d received, %d dropped%n",
+                producers, offered, (System.nanoTime() - started) / 1e6, received, dropped);
+        System.out.println(accounted ? "every command received or counted as dropped"
+                : "LOST " + (offered - received - dropped) + " commands");
+        System.out.println(inOrder ? "each producer's commands arrived in order" : "commands arrived OUT OF ORDER");
+        if (!accounted || !inOrder) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+
+/**
+ * Plays many headless games in parallel on a ForkJoinPool and collects the
+ * results. Every game gets its own seed (derived from the batch seed and
+ * its index), difficulty and bot, and shares nothing with the others, so a
+ * batch produces the same results whatever the thread count.
+ *
+ * Run with: java -cp target/classes BatchRunner [games] [threads|scale] [pellet|random] [maxTicks]
+ * "scale" repeats the batch with 1, 2, 4 ... threads and prints the speedup.
+ */
+public class BatchRunner {
+    // Games per leaf task; small enough to balance, large enough to amortise
+    private static final int GAMES_PER_TASK = 4;
+
+    /** Outcome of one game. */
+    public static final class GameResult {
+        private final long seed;
+        private final GameSettings.Difficulty difficulty;
+        private final boolean won;
+        private final boolean timedOut;
+        private final int score;
+        private final long ticks;
+
+        GameResult(long seed, GameSettings.Difficulty difficulty, boolean won, boolean timedOut,
+                   int score, long ticks) {
+            this.seed = seed;
+            this.difficulty = difficulty;
+            this.won = won;
+            this.timedOut = timedOut;
+            this.score = score;
+            this.ticks = ticks;
+        }
+
+        // Getters
+        public long getSeed() { return seed; }
+        public GameSettings.Difficulty getDifficulty() { return difficulty; }
+        public boolean isWon() { return won; }
+        public boolean isTimedOut() { return timedOut; }
+        public int getScore() { return score; }
+        public long getTicks() { return ticks; }
+    }
+
+    private final GameSettings.Difficulty[] difficulties;
+    private final String[][] tileMaps;
+    private final LongFunction<PlayerBot> botFactory;
+    private final long maxTicks;
+
+    /**
+     * @param difficulties games cycle through these
+     * @param botFactory creates a bot for a game from the game's seed
+     * @param maxTicks games still running after this many ticks are cut off
+     */
+    public BatchRunner(GameSettings.Difficulty[] difficulties, LongFunction<PlayerBot> botFactory, long maxTicks) {
+        this.difficulties = difficulties.clone();
+        this.tileMaps = new String[difficulties.length][];
+        for (int i = 0; i < difficulties.length; i++) {
+            tileMaps[i] = Levels.forDifficulty(difficulties[i]);
+        }
+        this.botFactory = botFactory;
+        this.maxTicks = maxTicks;
+    }
+
+    public GameResult[] run(int games, long batchSeed, ForkJoinPool pool) {
+        GameResult[] results = new GameResult[games];
+        pool.invoke(new GameBatch(results, batchSeed, 0, games));
+        return results;
+    }
+
+    /** Seed for game number index; independent of how games are split up. */
+    public static long seedFor(long batchSeed, int index) {
+        return new SplittableRandom(batchSeed + index * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    public GameResult play(int index, long batchSeed) {
+        long seed = seedFor(batchSeed, index);
+        int variant = index % difficulties.length;
+        Simulation simulation = new Simulation(tileMaps[variant], seed);
+        PlayerBot bot = botFactory.apply(seed);
+
+        while (!simulation.isGameOver() && simulation.getTick() < maxTicks) {
+            simulation.step(bot.nextInput(simulation));
+        }
+
+        return new GameResult(seed, difficulties[variant], simulation.isGameWon(),
+                !simulation.isGameOver(), simulation.getScore(), simulation.getTick());
+    }
+
+    private final class GameBatch extends RecursiveAction {
+        private final GameResult[] results;
+        private final long batchSeed;
+        private final int from;
+        private final int to;
+
+        GameBatch(GameResult[] results, long batchSeed, int from, int to) {
+            this.results = results;
+            this.batchSeed = batchSeed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = play(i, batchSeed);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GameBatch(results, batchSeed, from, mid),
+                    new GameBatch(results, batchSeed, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String threadsArg = args.length > 1 ? args[1] : String.valueOf(Runtime.getRuntime().availableProcessors());
+        String botName = args.length > 2 ? args[2] : "pellet";
+        long maxTicks = args.length > 3 ? Long.parseLong(args[3]) : Simulation.ticksFor(5 * 60_000);
+
+        LongFunction<PlayerBot> bots = "random".equals(botName)
+                ? seed -> new RandomBot(seed, 8)
+                : PelletBot::new;
+        BatchRunner runner = new BatchRunner(GameSettings.Difficulty.values(), bots, maxTicks);
+        long batchSeed = 42;
+
+        // Warm-up so the JIT has compiled the simulation before timing
+        runner.run(Math.min(games, 2000), batchSeed + 1, ForkJoinPool.commonPool());
+
+        if ("scale".equals(threadsArg)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            double baseline = 0;
+            for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+                long t0 = System.nanoTime();
+                GameResult[] results = runOnPool(runner, games, batchSeed, threads);
+                double gamesPerSecond = printThroughput(results, threads, (System.nanoTime() - t0) / 1e9);
+                if (threads == 1) baseline = gamesPerSecond;
+                System.out.printf("    speedup %.2fx%n", gamesPerSecond / baseline);
+                if (threads == cores) break;
+            }
+            return;
+        }
+
+        int threads = Integer.parseInt(threadsArg);
+        long t0 = System.nanoTime();
+        GameResult[] results = runOnPool(runner, games, batchSeed, threads);
+        printThroughput(results, threads, (System.nanoTime() - t0) / 1e9);
+
+        for (GameSettings.Difficulty difficulty : GameSettings.Difficulty.values()) {
+            GameResult[] subset = Arrays.stream(results)
+                    .filter(r -> r.getDifficulty() == difficulty)
+                    .toArray(GameResult[]::new);
+            System.out.println("== " + difficulty + " (" + botName + " bot)");
+            new BatchStats(subset).print(System.out);
+        }
+        System.out.println("== All");
+        new BatchStats(results).print(System.out);
+    }
+
+    // Runs one batch on a fresh pool of the given size
+    private static GameResult[] runOnPool(BatchRunner runner, int games, long batchSeed, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return runner.run(games, batchSeed, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Prints games/s and ticks/s for a finished batch; returns games/s
+    private static double printThroughput(GameResult[] results, int threads, double seconds) {
+        long ticks = 0;
+        for (GameResult result : results) ticks += result.getTicks();
+        System.out.printf("%d games on %d threads in %.2fs: %.0f games/s, %.2fM ticks/s%n",
+                results.length, threads, seconds, results.length / seconds, ticks / seconds / 1e6);
+        return results.length / seconds;
+    }
+}
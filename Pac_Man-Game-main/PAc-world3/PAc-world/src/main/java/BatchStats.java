@@ -0,0 +1,107 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Summary of a batch of headless games: win rate plus score and survival
+ * time distributions.
+ */
+public class BatchStats {
+    private static final int[] PERCENTILES = {10, 25, 50, 75, 90, 99};
+    private static final int SURVIVAL_BUCKET_SECONDS = 15;
+    private static final int SURVIVAL_BUCKETS = 12;
+
+    private final int games;
+    private final int wins;
+    private final int timeouts;
+    private final long totalTicks;
+    private final int[] scores;
+    private final long[] survivalTicks;
+
+    public BatchStats(BatchRunner.GameResult[] results) {
+        this.games = results.length;
+        this.scores = new int[games];
+        this.survivalTicks = new long[games];
+
+        int wins = 0;
+        int timeouts = 0;
+        long totalTicks = 0;
+        for (int i = 0; i < games; i++) {
+            BatchRunner.GameResult result = results[i];
+            if (result.isWon()) wins++;
+            if (result.isTimedOut()) timeouts++;
+            totalTicks += result.getTicks();
+            scores[i] = result.getScore();
+            survivalTicks[i] = result.getTicks();
+        }
+        this.wins = wins;
+        this.timeouts = timeouts;
+        this.totalTicks = totalTicks;
+        Arrays.sort(scores);
+        Arrays.sort(survivalTicks);
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getMeanScore() {
+        long sum = 0;
+        for (int score : scores) sum += score;
+        return games == 0 ? 0 : (double) sum / games;
+    }
+
+    public int getScorePercentile(int percentile) {
+        return games == 0 ? 0 : scores[index(percentile)];
+    }
+
+    public long getSurvivalPercentile(int percentile) {
+        return games == 0 ? 0 : survivalTicks[index(percentile)];
+    }
+
+    private int index(int percentile) {
+        return Math.min(games - 1, (int) ((long) percentile * games / 100));
+    }
+
+    public void print(PrintStream out) {
+        out.printf("games %d  wins %d (%.1f%%)  timeouts %d%n", games, wins, getWinRate() * 100, timeouts);
+        if (games == 0) return;
+
+        out.printf("score     mean %.0f  min %d  max %d%n", getMeanScore(), scores[0], scores[games - 1]);
+        out.print("          ");
+        for (int p : PERCENTILES) {
+            out.printf(" p%d %d", p, getScorePercentile(p));
+        }
+        out.println();
+
+        out.printf("survival  mean %.1fs%n", seconds(totalTicks) / games);
+        out.print("          ");
+        for (int p : PERCENTILES) {
+            out.printf(" p%d %.1fs", p, seconds(getSurvivalPercentile(p)));
+        }
+        out.println();
+
+        // Survival histogram, last bucket collects everything longer
+        int[] buckets = new int[SURVIVAL_BUCKETS];
+        for (long ticks : survivalTicks) {
+            int bucket = (int) (seconds(ticks) / SURVIVAL_BUCKET_SECONDS);
+            buckets[Math.min(bucket, SURVIVAL_BUCKETS - 1)]++;
+        }
+        for (int i = 0; i < SURVIVAL_BUCKETS; i++) {
+            String label = i == SURVIVAL_BUCKETS - 1
+                    ? String.format("%-10s", i * SURVIVAL_BUCKET_SECONDS + "s+")
+                    : String.format("%-10s", i * SURVIVAL_BUCKET_SECONDS + "-" + (i + 1) * SURVIVAL_BUCKET_SECONDS + "s");
+            int bar = (int) Math.round(50.0 * buckets[i] / games);
+            out.printf("  %s %6d %s%n", label, buckets[i], "#".repeat(bar));
+        }
+    }
+
+    private static double seconds(long ticks) {
+        return ticks * Simulation.TICK_MILLIS / 1000.0;
+    }
+
+    // Getters
+    public int getGames() { return games; }
+    public int getWins() { return wins; }
+    public int getTimeouts() { return timeouts; }
+    public long getTotalTicks() { return totalTicks; }
+}
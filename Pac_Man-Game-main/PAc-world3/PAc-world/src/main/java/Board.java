@@ -1,93 +1,144 @@
 import entities.*;
-import utils.ImageManager;
-import java.util.HashSet;
-import java.awt.Image;
+import utils.GameRandom;
+import utils.MazeNavigation;
+import utils.NavGraph;
+import utils.PelletLayer;
+import utils.TileGrid;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * The maze and everything placed on it. Holds no images, so it can be
+ * loaded and simulated without a display; sprites are the renderer's job.
+ */
 public class Board {
-    private final int rowCount = 21;
-    private final int columnCount = 19;
+    private final int rowCount;
+    private final int columnCount;
+    // "@swarm=N" in a map spawns N swarm ghosts on the S tiles (or the ghost spawns if there are none)
+    private static final String SWARM_DIRECTIVE = "@swarm=";
     private final int tileSize = 32;
     private final String[] tileMap;
-    private final HashSet<Wall> walls;
-    private final HashSet<Food> foods;
-    private final HashSet<Ghost> ghosts;
+    private final PelletLayer foods;
+    private final List<Ghost> ghosts;
+    private final int swarmSize;
+    private GhostSwarm swarm;
+    private TileGrid grid;
+    private MazeNavigation navigation;
     private int playerStartX, playerStartY;
     
     public Board(String[] tileMap) {
-        this.tileMap = tileMap;
-        this.walls = new HashSet<>();
-        this.foods = new HashSet<>();
-        this.ghosts = new HashSet<>();
+        // Lines starting with '@' are settings for the map, not rows
+        List<String> rows = new ArrayList<>(tileMap.length);
+        int swarmSetting = 0;
+        for (String line : tileMap) {
+            if (line.startsWith(SWARM_DIRECTIVE)) {
+                swarmSetting = Integer.parseInt(line.substring(SWARM_DIRECTIVE.length()).trim());
+            } else if (!line.startsWith("@")) {
+                rows.add(line);
+            }
+        }
+        this.tileMap = rows.toArray(new String[0]);
+        this.swarmSize = swarmSetting;
+        // Board size comes from the map itself; rows are expected to be equally long
+        this.rowCount = this.tileMap.length;
+        this.columnCount = rowCount > 0 ? this.tileMap[0].length() : 0;
+        this.foods = new PelletLayer(columnCount, rowCount);
+        // A list, not a set, so ghosts always update in map order
+        this.ghosts = new ArrayList<>();
     }
     
-    public void loadMap(ImageManager imageManager) {
-        walls.clear();
+    /**
+     * Builds the grid, pellets and ghosts from the tile map. Each ghost gets
+     * its own stream split from the given random source.
+     */
+    public void loadMap(GameRandom random) {
         foods.clear();
         ghosts.clear();
-        
+        grid = new TileGrid(columnCount, rowCount, tileSize);
+        List<Integer> swarmSpawns = new ArrayList<>();
+        List<Integer> ghostSpawns = new ArrayList<>();
         
         for (int r = 0; r < rowCount; r++) {
             for (int c = 0; c < columnCount; c++) {
-                char tileChar = tileMap[r].charAt(c);
+                char tileChar = c < tileMap[r].length() ? tileMap[r].charAt(c) : 'X';
                 int x = c * tileSize;
                 int y = r * tileSize;
                 
                 switch (tileChar) {
                     case 'X':
-                        walls.add(new Wall(imageManager.loadImage("/images/wall.png"), x, y, tileSize, tileSize));
+                        grid.setWall(c, r);
                         break;
                     case ' ':
-                        foods.add(new Food(null, x + 14, y + 14, 4, 4, 10, false));
+                        foods.add(c, r, PelletLayer.Kind.DOT);
                         break;
                     case 'O':
-                        foods.add(new Food(
-                            imageManager.loadImage("/images/powerPellet.png"), 
-                            x + 8, y + 8, 16, 16, 50, true));
+                        foods.add(c, r, PelletLayer.Kind.POWER_PELLET);
                         break;
                     case 'C':
-                        foods.add(new Food(
-                            imageManager.loadImage("/images/cherry.png"), 
-                            x + 4, y + 4, 24, 24, 100, false));
+                        foods.add(c, r, PelletLayer.Kind.CHERRY);
                         break;
                     case 'P':
                         playerStartX = x;
                         playerStartY = y;
                         break;
                     case 'b': case 'o': case 'p': case 'r':
-                        Image ghostNormal = null;
-                        Image ghostScared = null;
-                        switch (tileChar) {
-                            case 'b':
-                                ghostNormal = imageManager.loadImage("/images/blueGhost.png");
-                                break;
-                            case 'o':
-                                ghostNormal = imageManager.loadImage("/images/orangeGhost.png");
-                                break;
-                            case 'p':
-                                ghostNormal = imageManager.loadImage("/images/pinkGhost.png");
-                                break;
-                            case 'r':
-                                ghostNormal = imageManager.loadImage("/images/redGhost.png");
-                                break;
-                            default:
-                                ghostNormal = null;
-                                break;
-                        }
-                        ghostScared = imageManager.loadImage("/images/scaredGhost.png");
-                        ghosts.add(new Ghost(ghostNormal, ghostScared, x, y, tileSize, tileSize));
+                        ghosts.add(new Ghost(Ghost.GhostType.fromMapSymbol(tileChar), x, y, tileSize, tileSize, grid, random.split()));
+                        ghostSpawns.add(r * columnCount + c);
+                        break;
+                    case 'S':
+                        swarmSpawns.add(r * columnCount + c);
                         break;
                 }
             }
         }
+        
+        if (swarmSize > 0) {
+            List<Integer> spawns = swarmSpawns.isEmpty() ? ghostSpawns : swarmSpawns;
+            int[] spawnTiles = spawns.stream().mapToInt(Integer::intValue).toArray();
+            swarm = new GhostSwarm(grid, spawnTiles, swarmSize, random.split());
+        } else {
+            swarm = null;
+        }
+        
+        // Junctions and corridors only depend on the walls, so build them once per map
+        navigation = new MazeNavigation(grid);
+    }
+    
+    public boolean isWall(int col, int row) {
+        return grid.isWall(col, row);
+    }
+    
+    public boolean isWalkable(int col, int row) {
+        return grid.isWalkable(col, row);
+    }
+    
+    public boolean collidesWithWall(Entity entity) {
+        return grid.overlapsWall(entity.getX(), entity.getY(), entity.getWidth(), entity.getHeight());
+    }
+    
+    /**
+     * Re-centres the shared distance field on the player's tile.
+     * The BFS only runs when the player has actually moved to a new tile.
+     */
+    public void updatePlayerDistanceField(Entity player) {
+        int col = Math.floorDiv(player.getX() + player.getWidth() / 2, tileSize);
+        int row = Math.floorDiv(player.getY() + player.getHeight() / 2, tileSize);
+        navigation.getPlayerDistance().update(col, row);
     }
     
     // Getters
-    public HashSet<Wall> getWalls() { return walls; }
-    public HashSet<Food> getFoods() { return foods; }
-    public HashSet<Ghost> getGhosts() { return ghosts; }
+    public TileGrid getGrid() { return grid; }
+    public NavGraph getNavGraph() { return navigation.getNavGraph(); }
+    public MazeNavigation getNavigation() { return navigation; }
+    public PelletLayer getFoods() { return foods; }
+    public List<Ghost> getGhosts() { return ghosts; }
+    /** The swarm ghosts, or null if the map has none. */
+    public GhostSwarm getSwarm() { return swarm; }
     public int getTileSize() { return tileSize; }
     public int getBoardWidth() { return columnCount * tileSize; }
     public int getBoardHeight() { return rowCount * tileSize; }
+    public int getColumnCount() { return columnCount; }
+    public int getRowCount() { return rowCount; }
     public int getPlayerStartX() { return playerStartX; }
     public int getPlayerStartY() { return playerStartY; }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Active-rendering alternative to GamePanel.
+ * A loop thread draws the game's latest snapshot straight into a
+ * BufferStrategy, so a busy EDT does not hold up frames. Ticks run on the
+ * game's own simulation thread, so a slow frame does not hold them up either.
+ * The frame rate is paced separately from the simulation tick and defaults
+ * to the display refresh rate (0 = uncapped); the game interpolates between
+ * ticks so e.g. a 144 Hz display still moves smoothly.
+ * F3 toggles an overlay with frame times and the audio counters.
+ */
+public class GameCanvas extends Canvas implements Runnable {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // Sleep until this close to the deadline, then yield the rest
+    private static final long SPIN_NANOS = 1_500_000L;
+
+    private final Game game;
+    private Thread loopThread;
+    private volatile boolean running = false;
+    private volatile int targetFps = 60;
+    private volatile boolean showStats = false;
+
+    // Frame statistics, measured over the last second
+    private volatile double framesPerSecond = 0;
+    private volatile double averageFrameMillis = 0;
+    private volatile double worstFrameMillis = 0;
+
+    public GameCanvas(Game game) {
+        this.game = game;
+        setPreferredSize(new Dimension(game.getBoardWidth(), game.getBoardHeight()));
+        setBackground(Color.BLACK);
+        setIgnoreRepaint(true);
+
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyReleased(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_F3) {
+                    showStats = !showStats;
+                    return;
+                }
+                // Handled on the game's simulation thread
+                game.submitKey(e.getKeyCode());
+            }
+        });
+
+        setFocusable(true);
+    }
+
+    /**
+     * Starts the loop. The canvas must already be displayable (added to a
+     * packed frame) so that a buffer strategy can be created.
+     */
+    public void start() {
+        if (running) return;
+
+        createBufferStrategy(2);
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc != null) {
+            int refreshRate = gc.getDevice().getDisplayMode().getRefreshRate();
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                targetFps = refreshRate;
+            }
+        }
+
+        running = true;
+        loopThread = new Thread(this, "game-render-loop");
+        loopThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (loopThread != null) {
+            loopThread.interrupt();
+            loopThread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = getBufferStrategy();
+        long nextFrame = System.nanoTime();
+        long statsStart = nextFrame;
+        long lastFrame = nextFrame;
+        int frames = 0;
+        long frameNanosTotal = 0;
+        long worstFrameNanos = 0;
+
+        while (running) {
+            renderFrame(strategy);
+
+            // Statistics
+            long now = System.nanoTime();
+            long frameNanos = now - lastFrame;
+            lastFrame = now;
+            frames++;
+            frameNanosTotal += frameNanos;
+            worstFrameNanos = Math.max(worstFrameNanos, frameNanos);
+            if (now - statsStart >= NANOS_PER_SECOND) {
+                framesPerSecond = frames * (double) NANOS_PER_SECOND / (now - statsStart);
+                averageFrameMillis = frameNanosTotal / 1e6 / frames;
+                worstFrameMillis = worstFrameNanos / 1e6;
+                statsStart = now;
+                frames = 0;
+                frameNanosTotal = 0;
+                worstFrameNanos = 0;
+            }
+
+            // Frame pacing; a target of 0 runs uncapped to measure throughput
+            int fps = targetFps;
+            if (fps > 0) {
+                nextFrame += NANOS_PER_SECOND / fps;
+                if (now - nextFrame > NANOS_PER_SECOND / 4) {
+                    // Fell far behind (debugger, sleep); don't try to catch up
+                    nextFrame = now;
+                }
+                waitUntil(nextFrame);
+            } else {
+                nextFrame = now;
+            }
+        }
+    }
+
+    private void renderFrame(BufferStrategy strategy) {
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    g.setColor(Color.BLACK);
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                    game.render(g);
+                    if (showStats) {
+                        drawStats((Graphics2D) g);
+                    }
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void drawStats(Graphics2D g2d) {
+        String text = String.format("%.0f fps  avg %.2f ms  worst %.2f ms",
+                framesPerSecond, averageFrameMillis, worstFrameMillis);
+        String audio = String.format("audio %d played  %d dropped  %d late",
+                game.getSounds().getPlayed(), game.getSounds().getDropped(), game.getSounds().getLate());
+        g2d.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        g2d.setColor(Color.BLACK);
+        g2d.drawString(text, 11, getHeight() - 23);
+        g2d.drawString(audio, 11, getHeight() - 9);
+        g2d.setColor(Color.GREEN);
+        g2d.drawString(text, 10, getHeight() - 24);
+        g2d.drawString(audio, 10, getHeight() - 10);
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                try {
+                    Thread.sleep((remaining - SPIN_NANOS) / 1_000_000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    // Getters and setters
+    public int getTargetFps() { return targetFps; }
+    public void setTargetFps(int targetFps) { this.targetFps = Math.max(0, targetFps); }
+    public double getFramesPerSecond() { return framesPerSecond; }
+    public double getAverageFrameMillis() { return averageFrameMillis; }
+    public double getWorstFrameMillis() { return worstFrameMillis; }
+}
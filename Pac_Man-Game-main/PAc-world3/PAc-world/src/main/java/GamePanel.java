@@ -8,13 +8,13 @@ public class GamePanel extends JPanel {
     
     public GamePanel(Game game) {
         this.game = game;
-        setPreferredSize(new Dimension(game.getBoard().getBoardWidth(), game.getBoard().getBoardHeight()));
+        setPreferredSize(new Dimension(game.getBoardWidth(), game.getBoardHeight()));
         setBackground(Color.BLACK);
         
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                game.handleKeyPress(e.getKeyCode());
+                game.submitKey(e.getKeyCode());
             }
         });
         
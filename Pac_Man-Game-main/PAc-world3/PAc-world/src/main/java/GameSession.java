@@ -0,0 +1,106 @@
+import utils.Direction;
+import utils.SimulationClock;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One independent game: its own settings, seeded simulation (board, ghosts
+ * and their random streams) and clock. Input arrives through a single-slot
+ * mailbox that any thread may write; only the newest direction is kept, so a
+ * session's memory does not grow with how fast input arrives.
+ *
+ * A session is stepped by one thread at a time, either a window's game loop
+ * or a SessionScheduler worker.
+ */
+public class GameSession {
+    private static final int MAX_CATCH_UP_TICKS = 8;
+    // How often a recording is handed to its writer, so a crash loses little of it
+    private static final int RECORDER_FLUSH_TICKS = 5_000 / Simulation.TICK_MILLIS;
+
+    private final long id;
+    private final SessionSettings settings;
+    private final Simulation simulation;
+    private final SimulationClock clock;
+    private final PlayerBot bot;
+    private final AtomicReference<Direction> pendingInput = new AtomicReference<>();
+    private volatile boolean paused = false;
+    private volatile boolean finished = false;
+    private volatile ReplayRecorder recorder;
+
+    /** @param bot plays the session, or null to take input from submitInput() */
+    public GameSession(long id, SessionSettings settings, PlayerBot bot) {
+        this.id = id;
+        this.settings = settings;
+        this.simulation = new Simulation(Levels.forDifficulty(settings.getDifficulty()), settings.getSeed());
+        this.clock = new SimulationClock(Simulation.TICK_MILLIS, MAX_CATCH_UP_TICKS);
+        this.bot = bot;
+    }
+
+    /** Queues a direction for the next tick, replacing any not yet applied. */
+    public void submitInput(Direction direction) {
+        pendingInput.set(direction);
+    }
+
+    /**
+     * Runs the ticks that are due by the session's clock.
+     * @return the Simulation event flags of all ticks run, OR'd together
+     */
+    public int advance(long nowNanos) {
+        return runTicks(clock.advance(nowNanos));
+    }
+
+    /**
+     * Runs up to the given number of ticks, stopping early when the game
+     * ends or the session is paused.
+     * @return the Simulation event flags of all ticks run, OR'd together
+     */
+    public int runTicks(int ticks) {
+        int events = 0;
+        for (int i = 0; i < ticks && !paused && !finished; i++) {
+            Direction input = bot != null ? bot.nextInput(simulation) : pendingInput.getAndSet(null);
+            if (input != null && recorder != null) {
+                recorder.recordInput(simulation.getTick(), input);
+            }
+            events |= simulation.step(input);
+            if (simulation.isGameOver()) {
+                finished = true;
+            }
+            if (recorder != null && (finished || simulation.getTick() % RECORDER_FLUSH_TICKS == 0)) {
+                recorder.flush();
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Starts a new game on the same map, forgetting queued input. The ghosts
+     * get fresh randomness derived from the session seed and the number of
+     * restarts (see Simulation.restart()), so the session still replays exactly.
+     */
+    public void restart() {
+        if (recorder != null) {
+            recorder.recordRestart(simulation.getTick());
+        }
+        simulation.restart();
+        pendingInput.set(null);
+        clock.reset();
+        finished = false;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /** Records the inputs applied from now on; null stops recording. */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public SessionSettings getSettings() { return settings; }
+    public Simulation getSimulation() { return simulation; }
+    public SimulationClock getClock() { return clock; }
+    public boolean isPaused() { return paused; }
+    public boolean isFinished() { return finished; }
+    public ReplayRecorder getRecorder() { return recorder; }
+}
@@ -18,6 +18,7 @@ public class GameSettings {
     
     private static Difficulty currentDifficulty = Difficulty.EASY;
     private static boolean soundEnabled = true;
+    private static boolean activeRendering = false;
     
     public static Difficulty getDifficulty() {
         return currentDifficulty;
@@ -39,6 +40,18 @@ public class GameSettings {
         soundEnabled = !soundEnabled;
     }
     
+    public static boolean isActiveRendering() {
+        return activeRendering;
+    }
+    
+    public static void setActiveRendering(boolean enabled) {
+        activeRendering = enabled;
+    }
+    
+    public static void toggleActiveRendering() {
+        activeRendering = !activeRendering;
+    }
+    
     public static void cycleDifficulty() {
         switch (currentDifficulty) {
             case EASY:
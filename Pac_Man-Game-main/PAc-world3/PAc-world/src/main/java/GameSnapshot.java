@@ -0,0 +1,137 @@
+import utils.Direction;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A reusable buffer holding one binary snapshot of a Simulation. Capturing
+ * and restoring only copy the state that changes during play (no maps,
+ * images or navigation data), so both take microseconds and allocate
+ * nothing once the buffer has grown to fit. Used for cloning (lookahead
+ * bots, rollback), and with save/load for suspending a game to disk.
+ *
+ * Format (big-endian), version 3:
+ *   int magic "PACS", byte version, long seed, int map hash, int ghost count,
+ *   int swarm size (version 2), int restart count (version 3),
+ *   long tick, int score, int lives, byte flags (game over, won, power pellet),
+ *   int power pellet timer, int level complete timer, int distance field source,
+ *   player, ghosts in map order, swarm ghosts, pellets (see writeState() of each).
+ *
+ * Run with: java -cp target/classes GameSnapshot [iterations]
+ * to measure capture, restore and copy times.
+ */
+public class GameSnapshot {
+    static final int MAGIC = 0x50414353;
+    static final byte VERSION = 3;
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    /** Replaces the held snapshot with the simulation's current state. */
+    public void capture(Simulation simulation) {
+        while (true) {
+            buffer.clear();
+            try {
+                simulation.writeSnapshot(buffer);
+                buffer.flip();
+                return;
+            } catch (BufferOverflowException e) {
+                // Bigger maps need more room; grow once and keep the buffer
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /** Puts the simulation back into the held state. Can be repeated. */
+    public void restore(Simulation simulation) {
+        simulation.readSnapshot(buffer.duplicate());
+    }
+
+    public void save(Path file) throws IOException {
+        Files.write(file, toByteArray());
+    }
+
+    public static GameSnapshot load(Path file) throws IOException {
+        GameSnapshot snapshot = new GameSnapshot();
+        byte[] bytes = Files.readAllBytes(file);
+        snapshot.buffer = ByteBuffer.allocate(Math.max(INITIAL_CAPACITY, bytes.length));
+        snapshot.buffer.put(bytes).flip();
+        return snapshot;
+    }
+
+    /** The snapshot as a new simulation on the given map. */
+    public Simulation toSimulation(String[] tileMap) {
+        return Simulation.fromSnapshot(tileMap, buffer.duplicate());
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /** Seed recorded in a snapshot, without consuming the buffer. */
+    static long peekSeed(ByteBuffer snapshot) {
+        int start = snapshot.position();
+        if (snapshot.getInt(start) != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        return snapshot.getLong(start + 5);
+    }
+
+    // Getters
+    public int getSize() { return buffer.remaining(); }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        // Play a while so the snapshot has eaten pellets and moving ghosts
+        Simulation simulation = new Simulation(Levels.forDifficulty(GameSettings.Difficulty.HARD), 7);
+        PlayerBot bot = new PelletBot(7);
+        for (int i = 0; i < 600 && !simulation.isGameOver(); i++) {
+            simulation.step(bot.nextInput(simulation));
+        }
+
+        GameSnapshot snapshot = new GameSnapshot();
+        Simulation target = simulation.copy();
+        for (int round = 0; round < 2; round++) {
+            // First round warms up the JIT
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                snapshot.capture(simulation);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                snapshot.restore(target);
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                target.copyFrom(simulation);
+            }
+            long t3 = System.nanoTime();
+
+            if (round == 1) {
+                System.out.printf("snapshot %d bytes, %d ghosts%n", snapshot.getSize(),
+                        simulation.getBoard().getGhosts().size());
+                System.out.printf("capture %.2f us, restore %.2f us, copyFrom %.2f us%n",
+                        (t1 - t0) / 1e3 / iterations, (t2 - t1) / 1e3 / iterations, (t3 - t2) / 1e3 / iterations);
+            }
+        }
+
+        // Given the same inputs, the copy must play on exactly like the original
+        Simulation copy = simulation.copy();
+        for (int i = 0; i < 5_000; i++) {
+            Direction input = bot.nextInput(simulation);
+            simulation.step(input);
+            copy.step(input);
+        }
+        boolean same = copy.getTick() == simulation.getTick() && copy.getScore() == simulation.getScore()
+                && copy.getLives() == simulation.getLives()
+                && copy.getPlayer().getX() == simulation.getPlayer().getX()
+                && copy.getPlayer().getY() == simulation.getPlayer().getY();
+        System.out.println(same ? "copy stayed in step with the original" : "copy DIVERGED from the original");
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/**
+ * Tile maps for each difficulty.
+ * X = wall, space = dot, O = power pellet, C = cherry, P = player start,
+ * r/b/p/o = ghost spawns, S = swarm ghost spawn.
+ * A line "@swarm=N" adds N swarm ghosts (see GhostSwarm).
+ */
+public class Levels {
+    // Sửa các maps cho 3 difficulty levels
+    public static String[] forDifficulty(GameSettings.Difficulty difficulty) {
+        switch (difficulty) {
+            case EASY:
+                return new String[] {
+                        "XXXXXXXXXXXXXXXXXXX",
+                        "X        X        X",
+                        "X XX XXX X XXX XX X",
+                        "X                 X",
+                        "X XX X XXXXX X XX X",
+                        "X    X       X    X",
+                        "XXXX XXXX XXXX XXXX",
+                        "OOO  X       X  OOO",
+                        "XXXX X XXrXX X XXXX",
+                        "O       bpo       O",
+                        "XXXX X XXXXX X XXXX",
+                        "OOOX X       X XOOO",
+                        "XXXX X XXXXX X XXXX",
+                        "X        X        X",
+                        "X XX XXX X XXX XX X",
+                        "X  X     P     X  X",
+                        "XX X X XXXXX X X XX",
+                        "X    X   X   X    X",
+                        "X XXXXXX X XXXXXX X",
+                        "X                 X",
+                        "X XXXXXX X XXXXXX X",
+                        "X        X        X",
+                        "XXXXXXXXXXXXXXXXXXX"
+                };
+
+            case NORMAL:
+    return new String[] {
+        "XXXXXXXXXXXXXXXXXXX",
+        "X        X        X",
+        "X XX XXX X XXX XX X",
+        "X                 X",
+        "X XX X XXXXX X XX X",
+        "X    X   r   X    X",
+        "XXXX XXXX XXXX XXXX",
+        "OOO  X       X  OOO",
+        "XXXX X XXbXX X XXXX",
+        "O         p     o O",
+        "XXXX X XXXXX X XXXX",
+        "OOO  X       X  OOO",
+        "XXXX X XXXXX X XXXX",
+        "X                 X",
+        "X XX XXX X XXX XX X",
+        "X  X     P     X  X",
+        "XX X X XXXXX X X XX",
+        "X    X   X   X    X",
+        "X XXXXXX X XXXXXX X",
+        "X        X        X",
+        "XXXXXXXXXXXXXXXXXXX"
+    };
+
+case HARD:
+    return new String[] {
+        "XXXXXXXXXXXXXXXXXXX",
+        "X        X        X",
+        "X XX XXX X XXX XX X",
+        "X  X     o     X  X",
+        "X XX X XXXXX X XX X",
+        "X  r X       X b  X",
+        "XXXX XXXX XXXX XXXX",
+        "OOO  X       X  OOO",
+        "XXXX X XX XX X XXXX",
+        "O         P       O",
+        "XXXX X XXXXX X XXXX",
+        "OOO  X       X  OOO",
+        "XXXX X XXXXX X XXXX",
+        "X                 X",
+        "X XX XXX X XXX XX X",
+        "X  X           X  X",
+        "XX X X XXXXX X X XX",
+        "X p  X   X   X    X",
+        "X XXXXXX X XXXXXX X",
+        "X                 X",
+        "XXXXXXXXXXXXXXXXXXX"
+    };
+
+            default:
+                return forDifficulty(GameSettings.Difficulty.EASY);
+        }
+    }
+
+    /** The hard maze with a swarm of the given size on top of its four ghosts. */
+    public static String[] swarm(int ghosts) {
+        String[] map = forDifficulty(GameSettings.Difficulty.HARD);
+        String[] withSwarm = Arrays.copyOf(map, map.length + 1);
+        withSwarm[map.length] = "@swarm=" + ghosts;
+        return withSwarm;
+    }
+}
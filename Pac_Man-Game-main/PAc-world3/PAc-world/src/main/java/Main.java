@@ -21,6 +21,12 @@ public class Main {
                     if (menu.getGamePanel() != null) {
                         menu.getGamePanel().stopTimer();
                     }
+                    if (menu.getGameCanvas() != null) {
+                        menu.getGameCanvas().stop();
+                    }
+                    if (menu.getGame() != null) {
+                        menu.getGame().shutdown();
+                    }
                 }
             });
             
@@ -8,6 +8,7 @@ import utils.SoundManager;
 
 public class MainMenu extends JPanel {
     private Image pacmanLogo;
+    private Image pacmanSmall;
     private Image redGhost;
     private Image blueGhost;
     private Image pinkGhost;
@@ -19,6 +20,7 @@ public class MainMenu extends JPanel {
     private Game game;
     private JFrame parentFrame;
     private GamePanel gamePanel;
+    private GameCanvas gameCanvas;
     private SoundManager soundManager;
 
     // UI Constants
@@ -76,11 +78,13 @@ public class MainMenu extends JPanel {
 
     private void loadResources() {
         ImageManager imageManager = new ImageManager();
-        pacmanLogo = imageManager.loadImage("/images/pacmanRight.png");
-        redGhost = imageManager.loadImage("/images/redGhost.png");
-        blueGhost = imageManager.loadImage("/images/blueGhost.png");
-        pinkGhost = imageManager.loadImage("/images/pinkGhost.png");
-        orangeGhost = imageManager.loadImage("/images/orangeGhost.png");
+        // Scaled once to the sizes the menu draws them at
+        pacmanLogo = imageManager.loadImage("/images/pacmanRight.png", 70, 70);
+        pacmanSmall = imageManager.loadImage("/images/pacmanRight.png", 40, 40);
+        redGhost = imageManager.loadImage("/images/redGhost.png", 40, 40);
+        blueGhost = imageManager.loadImage("/images/blueGhost.png", 40, 40);
+        pinkGhost = imageManager.loadImage("/images/pinkGhost.png", 40, 40);
+        orangeGhost = imageManager.loadImage("/images/orangeGhost.png", 40, 40);
     }
 
     private void setupUI() {
@@ -343,7 +347,7 @@ public class MainMenu extends JPanel {
         if (ghostX > 100) {
             int pacmanX = ghostX - 80;
             int bobOffset = (int) (Math.sin(animationTick * 0.3) * 3);
-            g2d.drawImage(pacmanLogo, pacmanX, getHeight() - 70 + bobOffset, 40, 40, null);
+            g2d.drawImage(pacmanSmall, pacmanX, getHeight() - 70 + bobOffset, 40, 40, null);
         }
     }
 
@@ -370,7 +374,11 @@ public class MainMenu extends JPanel {
             protected Void doInBackground() throws Exception {
                 // Create game in background thread
                 game = new Game();
-                gamePanel = new GamePanel(game);
+                if (GameSettings.isActiveRendering()) {
+                    gameCanvas = new GameCanvas(game);
+                } else {
+                    gamePanel = new GamePanel(game);
+                }
                 return null;
             }
 
@@ -379,12 +387,17 @@ public class MainMenu extends JPanel {
                 try {
                     // Switch to game panel
                     parentFrame.getContentPane().removeAll();
-                    parentFrame.add(gamePanel);
+                    parentFrame.add(gameCanvas != null ? gameCanvas : gamePanel);
                     parentFrame.pack();
                     parentFrame.revalidate();
                     parentFrame.repaint();
 
-                    gamePanel.requestFocusInWindow();
+                    if (gameCanvas != null) {
+                        gameCanvas.requestFocusInWindow();
+                        gameCanvas.start();
+                    } else {
+                        gamePanel.requestFocusInWindow();
+                    }
                     game.start();
 
                 } catch (Exception e) {
@@ -499,8 +512,28 @@ public class MainMenu extends JPanel {
         gbc.gridx = 1;
         settingsPanel.add(difficultyButton, gbc);
 
-        // Difficulty Description
+        // Rendering Setting
         gbc.gridy = 3;
+        JLabel renderingLabel = new JLabel("Rendering:");
+        renderingLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        renderingLabel.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        settingsPanel.add(renderingLabel, gbc);
+
+        JButton renderingButton = createSettingsButton(
+                GameSettings.isActiveRendering() ? "ACTIVE" : "SWING");
+        renderingButton.addActionListener(e -> {
+            GameSettings.toggleActiveRendering();
+            renderingButton.setText(GameSettings.isActiveRendering() ? "ACTIVE" : "SWING");
+            if (GameSettings.isSoundEnabled()) {
+                soundManager.playSound("click.wav", false);
+            }
+        });
+        gbc.gridx = 1;
+        settingsPanel.add(renderingButton, gbc);
+
+        // Difficulty Description
+        gbc.gridy = 4;
         gbc.gridx = 0;
         gbc.gridwidth = 2;
         JTextArea descArea = new JTextArea(getDifficultyDescription());
@@ -545,10 +578,18 @@ public class MainMenu extends JPanel {
         }
     }
 
+    public Game getGame() {
+        return game;
+    }
+
     public GamePanel getGamePanel() {
         return gamePanel;
     }
 
+    public GameCanvas getGameCanvas() {
+        return gameCanvas;
+    }
+
     @Override
     public Dimension getPreferredSize() {
         return new Dimension(608, 672); // Same size as game board
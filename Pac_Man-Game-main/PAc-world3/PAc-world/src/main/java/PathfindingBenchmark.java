@@ -0,0 +1,167 @@
+import utils.AStarPathfinder;
+import utils.Direction;
+import utils.HierarchicalPathfinder;
+import utils.Pathfinder;
+import utils.TileGrid;
+import java.util.Random;
+
+/**
+ * Measures how ghost path queries scale with maze size.
+ * Generates random braided mazes from 64x64 up to 1000x1000 and times flat
+ * A* against HPA*, both for a fresh target (full search) and for following
+ * a path step by step the way a ghost does.
+ *
+ * Run with: java -cp target/classes PathfindingBenchmark [queries]
+ */
+public class PathfindingBenchmark {
+    private static final int[] SIZES = {64, 128, 256, 512, 1000};
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        System.out.printf("%-10s %-6s %10s %12s %12s %10s%n",
+                "size", "finder", "build ms", "fresh us", "follow us", "steps");
+        for (int size : SIZES) {
+            TileGrid grid = generateMaze(size, size, new Random(size));
+            int[] pairs = randomPairs(grid, queries, new Random(size * 31L));
+
+            long t0 = System.nanoTime();
+            Pathfinder hpa = new HierarchicalPathfinder(grid);
+            long hpaBuild = System.nanoTime() - t0;
+            report(size, "HPA*", hpaBuild, grid, hpa, pairs);
+
+            t0 = System.nanoTime();
+            Pathfinder flat = new AStarPathfinder(grid);
+            long flatBuild = System.nanoTime() - t0;
+            report(size, "A*", flatBuild, grid, flat, pairs);
+        }
+    }
+
+    private static void report(int size, String name, long buildNanos, TileGrid grid,
+                               Pathfinder finder, int[] pairs) {
+        int columns = grid.getColumns();
+        int count = pairs.length / 2;
+
+        // Warm-up so the JIT has compiled the search loops
+        for (int i = 0; i < Math.min(count, 20); i++) {
+            query(finder, columns, pairs[2 * i], pairs[2 * i + 1]);
+        }
+        finder.invalidate();
+
+        // Fresh target every query: full search each time
+        long t0 = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            query(finder, columns, pairs[2 * i], pairs[2 * i + 1]);
+        }
+        long fresh = (System.nanoTime() - t0) / count;
+
+        // Walk a few paths to the end, one query per tile like a ghost
+        finder.invalidate();
+        int walks = Math.min(count, 10);
+        long steps = 0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < walks; i++) {
+            steps += walk(finder, grid, pairs[2 * i], pairs[2 * i + 1]);
+        }
+        long follow = steps == 0 ? 0 : (System.nanoTime() - t0) / steps;
+
+        System.out.printf("%-10s %-6s %10.1f %12.1f %12.1f %10d%n",
+                size + "x" + size, name, buildNanos / 1e6, fresh / 1e3, follow / 1e3, steps);
+    }
+
+    private static Direction query(Pathfinder finder, int columns, int from, int to) {
+        return finder.nextStep(from % columns, from / columns, to % columns, to / columns);
+    }
+
+    private static int walk(Pathfinder finder, TileGrid grid, int from, int to) {
+        int columns = grid.getColumns();
+        int col = from % columns;
+        int row = from / columns;
+        int limit = grid.getColumns() * grid.getRows();
+        int steps = 0;
+
+        Direction step;
+        while ((step = finder.nextStep(col, row, to % columns, to / columns)) != null && steps < limit) {
+            switch (step) {
+                case UP: row--; break;
+                case DOWN: row++; break;
+                case LEFT: col--; break;
+                case RIGHT: col++; break;
+            }
+            steps++;
+        }
+        return steps;
+    }
+
+    private static int[] randomPairs(TileGrid grid, int count, Random random) {
+        int[] pairs = new int[count * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            int col;
+            int row;
+            do {
+                col = random.nextInt(grid.getColumns());
+                row = random.nextInt(grid.getRows());
+            } while (!grid.isWalkable(col, row));
+            pairs[i] = row * grid.getColumns() + col;
+        }
+        return pairs;
+    }
+
+    /**
+     * Recursive-backtracker maze on odd cells with ~10% of walls knocked out
+     * afterwards so there are loops, like the hand-made Pac-Man maps.
+     */
+    static TileGrid generateMaze(int columns, int rows, Random random) {
+        TileGrid grid = new TileGrid(columns, rows, 32);
+        boolean[] open = new boolean[columns * rows];
+        int[] stack = new int[columns * rows];
+        int top = 0;
+
+        open[columns + 1] = true;
+        stack[top++] = columns + 1;
+        int[] order = {0, 1, 2, 3};
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int c = cell % columns;
+            int r = cell / columns;
+
+            for (int i = 3; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+
+            boolean moved = false;
+            for (int d : order) {
+                int nc = c + (d == 2 ? -2 : d == 3 ? 2 : 0);
+                int nr = r + (d == 0 ? -2 : d == 1 ? 2 : 0);
+                if (nc > 0 && nc < columns - 1 && nr > 0 && nr < rows - 1 && !open[nr * columns + nc]) {
+                    open[((r + nr) / 2) * columns + (c + nc) / 2] = true;
+                    open[nr * columns + nc] = true;
+                    stack[top++] = nr * columns + nc;
+                    moved = true;
+                    break;
+                }
+            }
+            if (!moved) {
+                top--;
+            }
+        }
+
+        for (int r = 1; r < rows - 1; r++) {
+            for (int c = 1; c < columns - 1; c++) {
+                if (!open[r * columns + c] && random.nextInt(10) == 0) {
+                    open[r * columns + c] = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < open.length; i++) {
+            if (!open[i]) {
+                grid.setWall(i % columns, i / columns);
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,156 @@
+import entities.Ghost;
+import entities.GhostSwarm;
+import entities.Player;
+import utils.Direction;
+import utils.PelletLayer;
+import utils.TileGrid;
+import java.util.SplittableRandom;
+
+/**
+ * Heads for the nearest pellet by BFS, treating tiles around dangerous
+ * ghosts as walls. Scared ghosts are ignored. Only decides when the player
+ * enters a new tile or is stuck, and only presses a key to change direction.
+ * Each decision expands neighbours in a random order drawn from the seed,
+ * so ties between equally near pellets go different ways in different games.
+ */
+public class PelletBot implements PlayerBot {
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SplittableRandom random;
+    private TileGrid grid;
+    private int[] parent;
+    private int[] queue;
+    private int[] visited;
+    private int[] danger;
+    private final int[] order = {0, 1, 2, 3};
+    private int stamp = 0;
+    private int lastTile = -1;
+    private int lastX = Integer.MIN_VALUE;
+    private int lastY = Integer.MIN_VALUE;
+
+    public PelletBot(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public Direction nextInput(Simulation simulation) {
+        Board board = simulation.getBoard();
+        Player player = simulation.getPlayer();
+        if (board.getGrid() != grid) {
+            attach(board.getGrid());
+        }
+
+        int tileSize = grid.getTileSize();
+        int col = Math.floorDiv(player.getX() + player.getWidth() / 2, tileSize);
+        int row = Math.floorDiv(player.getY() + player.getHeight() / 2, tileSize);
+        int tile = grid.tileIndex(col, row);
+        boolean stuck = player.getX() == lastX && player.getY() == lastY;
+        lastX = player.getX();
+        lastY = player.getY();
+        if (tile < 0 || (tile == lastTile && !stuck)) {
+            return null;
+        }
+        lastTile = tile;
+
+        Direction wanted = findPellet(simulation, tile);
+        if (wanted == null && stuck) {
+            wanted = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+        }
+        if (wanted == null || (wanted == player.getDirection() && !stuck)) {
+            return null;
+        }
+        return wanted;
+    }
+
+    private void attach(TileGrid grid) {
+        this.grid = grid;
+        int tiles = grid.getColumns() * grid.getRows();
+        parent = new int[tiles];
+        queue = new int[tiles];
+        visited = new int[tiles];
+        danger = new int[tiles];
+        stamp = 0;
+        lastTile = -1;
+    }
+
+    // First step toward the closest pellet that can be reached safely
+    private Direction findPellet(Simulation simulation, int start) {
+        stamp++;
+        shuffleOrder();
+        int columns = grid.getColumns();
+        int tileSize = grid.getTileSize();
+
+        for (Ghost ghost : simulation.getBoard().getGhosts()) {
+            if (ghost.isScared()) continue;
+            markGhost(ghost.getX() + ghost.getWidth() / 2, ghost.getY() + ghost.getHeight() / 2, tileSize);
+        }
+        GhostSwarm swarm = simulation.getBoard().getSwarm();
+        if (swarm != null) {
+            for (int i = 0; i < swarm.size(); i++) {
+                if (swarm.isScared(i)) continue;
+                markGhost(swarm.getX(i) + tileSize / 2, swarm.getY(i) + tileSize / 2, tileSize);
+            }
+        }
+
+        PelletLayer foods = simulation.getBoard().getFoods();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = stamp;
+        parent[start] = -1;
+        while (head < tail) {
+            int current = queue[head++];
+            int c = current % columns;
+            int r = current / columns;
+            if (current != start && foods.kindAt(c, r) != null) {
+                // Walk back to the tile next to the start
+                int step = current;
+                while (parent[step] != start) {
+                    step = parent[step];
+                }
+                return grid.stepDirection(start, step);
+            }
+
+            for (int i = 0; i < 4; i++) {
+                int d = order[i];
+                int neighbor = grid.tileIndex(c + DX[d], r + DY[d]);
+                if (neighbor >= 0 && visited[neighbor] != stamp && danger[neighbor] != stamp
+                        && grid.isWalkable(neighbor % columns, neighbor / columns)) {
+                    visited[neighbor] = stamp;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Fisher-Yates over the four directions
+    private void shuffleOrder() {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    // A ghost's tile and its neighbours are off limits
+    private void markGhost(int centerX, int centerY, int tileSize) {
+        int gc = Math.floorDiv(centerX, tileSize);
+        int gr = Math.floorDiv(centerY, tileSize);
+        markDanger(gc, gr);
+        for (int d = 0; d < 4; d++) {
+            markDanger(gc + DX[d], gr + DY[d]);
+        }
+    }
+
+    private void markDanger(int col, int row) {
+        int tile = grid.tileIndex(col, row);
+        if (tile >= 0) {
+            danger[tile] = stamp;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+import utils.Direction;
+
+/**
+ * Stands in for the keyboard when a Simulation runs without a window.
+ * Bots are stateful and belong to a single game.
+ */
+public interface PlayerBot {
+    /**
+     * Input for the next tick, or null to keep going as before.
+     * Called once per tick before Simulation.step().
+     */
+    Direction nextInput(Simulation simulation);
+}
@@ -0,0 +1,24 @@
+import utils.Direction;
+import java.util.SplittableRandom;
+
+/** Presses a random arrow key now and then. Useful as a baseline. */
+public class RandomBot implements PlayerBot {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SplittableRandom random;
+    private final int pressChance;
+
+    /** @param pressChance one in this many ticks gets a key press */
+    public RandomBot(long seed, int pressChance) {
+        this.random = new SplittableRandom(seed);
+        this.pressChance = Math.max(1, pressChance);
+    }
+
+    @Override
+    public Direction nextInput(Simulation simulation) {
+        if (random.nextInt(pressChance) != 0) {
+            return null;
+        }
+        return DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+    }
+}
@@ -0,0 +1,190 @@
+import entities.Ghost;
+import entities.GhostSwarm;
+import entities.Player;
+import utils.Direction;
+import utils.PelletLayer;
+import utils.TileGrid;
+import java.util.Arrays;
+
+/**
+ * Everything the renderer needs from one simulation tick, copied out by the
+ * simulation thread and published whole. What a snapshot holds is never
+ * changed after it is built, so the render thread can draw it while the
+ * next tick runs. The one live object it refers to is the board's wall
+ * grid, which does not change once the board has loaded.
+ * Positions are kept as previous and current so frames drawn between ticks
+ * can still interpolate.
+ *
+ * Pellets are copied incrementally: the dot bitset only when the layer's
+ * version changes, and each tick the tiles eaten during it are appended to
+ * an eaten log shared with earlier snapshots of the same version. A
+ * snapshot only reads the log below its own eatenCount, and entries there
+ * are never written again.
+ */
+public final class RenderSnapshot {
+    // Identifies the board as well; a restart loads a new one
+    final TileGrid grid;
+    final int boardWidth;
+    final int boardHeight;
+    final int tileSize;
+    final long tick;
+    final long tickNanos;
+    // The clock's interpolation factor at the moment the snapshot was taken
+    final long capturedNanos;
+    final float capturedAlpha;
+
+    final int score;
+    final int lives;
+    final boolean gameOver;
+    final boolean gameWon;
+    final boolean paused;
+    final boolean powerPelletActive;
+    final int powerPelletTicks;
+
+    final int playerX, playerY, playerPreviousX, playerPreviousY, playerSize;
+    final Direction playerDirection;
+
+    final int ghostCount;
+    final int[] ghostX, ghostY, ghostPreviousX, ghostPreviousY;
+    final int ghostSize;
+    final Ghost.GhostType[] ghostType;
+    final Ghost.GhostMode[] ghostMode;
+    final boolean[] ghostScared;
+
+    final int swarmCount;
+    final int[] swarmX, swarmY, swarmPreviousX, swarmPreviousY;
+    final boolean[] swarmScared;
+    final int swarmSize;
+
+    final int pelletVersion;
+    final long[] dots;
+    final int[] eatenTiles;
+    final int eatenCount;
+    final int foodRemaining;
+    final int[] powerPelletTiles;
+    final int[] cherryTiles;
+
+    private RenderSnapshot(GameSession session, RenderSnapshot previous, long nowNanos) {
+        Simulation simulation = session.getSimulation();
+        Board board = simulation.getBoard();
+        grid = board.getGrid();
+        boardWidth = board.getBoardWidth();
+        boardHeight = board.getBoardHeight();
+        tileSize = board.getTileSize();
+        tick = simulation.getTick();
+        tickNanos = session.getClock().getTickNanos();
+        capturedNanos = nowNanos;
+        capturedAlpha = session.getClock().getAlpha(nowNanos);
+
+        score = simulation.getScore();
+        lives = simulation.getLives();
+        gameOver = simulation.isGameOver();
+        gameWon = simulation.isGameWon();
+        paused = session.isPaused();
+        powerPelletActive = simulation.isPowerPelletActive();
+        powerPelletTicks = simulation.getPowerPelletTimer();
+
+        Player player = simulation.getPlayer();
+        playerX = player.getX();
+        playerY = player.getY();
+        playerPreviousX = player.getPreviousX();
+        playerPreviousY = player.getPreviousY();
+        playerSize = player.getWidth();
+        playerDirection = player.getDirection();
+
+        Ghost[] ghosts = board.getGhosts().toArray(new Ghost[0]);
+        ghostCount = ghosts.length;
+        ghostX = new int[ghostCount];
+        ghostY = new int[ghostCount];
+        ghostPreviousX = new int[ghostCount];
+        ghostPreviousY = new int[ghostCount];
+        ghostType = new Ghost.GhostType[ghostCount];
+        ghostMode = new Ghost.GhostMode[ghostCount];
+        ghostScared = new boolean[ghostCount];
+        for (int i = 0; i < ghostCount; i++) {
+            Ghost ghost = ghosts[i];
+            ghostX[i] = ghost.getX();
+            ghostY[i] = ghost.getY();
+            ghostPreviousX[i] = ghost.getPreviousX();
+            ghostPreviousY[i] = ghost.getPreviousY();
+            ghostType[i] = ghost.getType();
+            ghostMode[i] = ghost.getCurrentMode();
+            ghostScared[i] = ghost.isScared();
+        }
+        ghostSize = ghostCount > 0 ? ghosts[0].getWidth() : board.getTileSize();
+
+        GhostSwarm swarm = board.getSwarm();
+        swarmCount = swarm != null ? swarm.size() : 0;
+        swarmX = new int[swarmCount];
+        swarmY = new int[swarmCount];
+        swarmPreviousX = new int[swarmCount];
+        swarmPreviousY = new int[swarmCount];
+        swarmScared = new boolean[swarmCount];
+        for (int i = 0; i < swarmCount; i++) {
+            swarmX[i] = swarm.getX(i);
+            swarmY[i] = swarm.getY(i);
+            swarmPreviousX[i] = swarm.getPreviousX(i);
+            swarmPreviousY[i] = swarm.getPreviousY(i);
+            swarmScared[i] = swarm.isScared(i);
+        }
+        swarmSize = swarm != null ? swarm.getTileSize() : board.getTileSize();
+
+        PelletLayer pellets = board.getFoods();
+        pelletVersion = pellets.getVersion();
+        eatenCount = pellets.getEatenCount();
+        foodRemaining = pellets.getRemaining();
+        boolean samePellets = previous != null && previous.grid == grid && previous.pelletVersion == pelletVersion;
+        if (samePellets) {
+            dots = previous.dots;
+            int[] log = previous.eatenTiles;
+            if (eatenCount > log.length) {
+                // A bigger copy; earlier snapshots keep the old array
+                log = Arrays.copyOf(log, Math.max(eatenCount, log.length * 2));
+            }
+            for (int i = previous.eatenCount; i < eatenCount; i++) {
+                log[i] = pellets.getEatenTile(i);
+            }
+            eatenTiles = log;
+        } else {
+            dots = pellets.copyDots();
+            eatenTiles = new int[Math.max(64, eatenCount)];
+            for (int i = 0; i < eatenCount; i++) {
+                eatenTiles[i] = pellets.getEatenTile(i);
+            }
+        }
+        // The special tiles only change when one is eaten, which is also logged
+        if (samePellets && previous.eatenCount == eatenCount) {
+            powerPelletTiles = previous.powerPelletTiles;
+            cherryTiles = previous.cherryTiles;
+        } else {
+            powerPelletTiles = pellets.copySpecialTiles(PelletLayer.Kind.POWER_PELLET);
+            cherryTiles = pellets.copySpecialTiles(PelletLayer.Kind.CHERRY);
+        }
+    }
+
+    /**
+     * Copies the session's current state. Must run on the thread that steps
+     * the session; previous (may be null) lets unchanged parts be shared.
+     */
+    static RenderSnapshot capture(GameSession session, RenderSnapshot previous, long nowNanos) {
+        return new RenderSnapshot(session, previous, nowNanos);
+    }
+
+    /** Interpolation factor for a frame drawn at the given time, in [0, 1]. */
+    float alphaAt(long nowNanos) {
+        if (paused || gameOver) {
+            return 1f;
+        }
+        float elapsed = (float) Math.max(0, nowNanos - capturedNanos) / tickNanos;
+        return Math.min(1f, capturedAlpha + elapsed);
+    }
+
+    /** Position between two ticks; jumps larger than size (tunnel wraps, resets) are not interpolated. */
+    static int interpolate(int from, int to, int size, float alpha) {
+        return Math.abs(to - from) > size ? to : from + Math.round((to - from) * alpha);
+    }
+
+    long getPowerPelletMillis() {
+        return powerPelletTicks * tickNanos / 1_000_000L;
+    }
+}
@@ -0,0 +1,215 @@
+import utils.Direction;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recorded game: seed, difficulty and the inputs by tick, played back
+ * through a fresh Simulation. Because the simulation is deterministic, the
+ * replay reproduces the original game exactly, at real-time, accelerated or
+ * unbounded speed.
+ *
+ * File format (big-endian), version 2:
+ *   int magic "PACR", byte version, byte difficulty, long seed, varint tick millis
+ *   then one varint per record: (ticks since previous record << 3) | code
+ *   code 0-3 = input (Direction ordinal), 4 = restart (ticks restart at 0 and
+ *   the next game is seeded by Simulation.seedForGame; version 2),
+ *   7 = end, followed by varint score and varint lives.
+ * A file cut short (crash) simply has no end record.
+ *
+ * Run with: java -cp target/classes Replay file.replay [speed]
+ * speed 1 = real time, 10 = ten times faster, 0 = as fast as possible (default).
+ */
+public class Replay {
+    static final int MAGIC = 0x50414352;
+    static final int VERSION = 2;
+    static final int CODE_RESTART = 4;
+    static final int CODE_END = 7;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final GameSettings.Difficulty difficulty;
+    private final long seed;
+    private final long[] ticks;
+    private final byte[] codes;
+    private final int count;
+    private final boolean complete;
+    private final long endTick;
+    private final int endScore;
+    private final int endLives;
+
+    private Replay(GameSettings.Difficulty difficulty, long seed, long[] ticks, byte[] codes, int count,
+                   boolean complete, long endTick, int endScore, int endLives) {
+        this.difficulty = difficulty;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.codes = codes;
+        this.count = count;
+        this.complete = complete;
+        this.endTick = endTick;
+        this.endScore = endScore;
+        this.endLives = endLives;
+    }
+
+    public static Replay read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    public static Replay read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a replay file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        GameSettings.Difficulty difficulty = GameSettings.Difficulty.values()[in.readUnsignedByte()];
+        long seed = in.readLong();
+        long tickMillis = readVarLong(in);
+        if (tickMillis != Simulation.TICK_MILLIS) {
+            throw new IOException("Replay was recorded at " + tickMillis + " ms per tick");
+        }
+
+        long[] ticks = new long[64];
+        byte[] codes = new byte[64];
+        int count = 0;
+        long tick = 0;
+        while (true) {
+            long record;
+            try {
+                record = readVarLong(in);
+            } catch (EOFException e) {
+                // No end record: the recording was cut short
+                return new Replay(difficulty, seed, ticks, codes, count, false, tick, 0, 0);
+            }
+
+            int code = (int) (record & 7);
+            tick += record >>> 3;
+            if (code == CODE_END) {
+                int score = (int) readVarLong(in);
+                int lives = (int) readVarLong(in);
+                return new Replay(difficulty, seed, ticks, codes, count, true, tick, score, lives);
+            }
+
+            if (count == ticks.length) {
+                ticks = Arrays.copyOf(ticks, count * 2);
+                codes = Arrays.copyOf(codes, count * 2);
+            }
+            ticks[count] = tick;
+            codes[count] = (byte) code;
+            count++;
+            if (code == CODE_RESTART) {
+                tick = 0;
+            }
+        }
+    }
+
+    /**
+     * Plays the replay on a new simulation.
+     * @param speed 1 for real time, larger to speed up, 0 or less for unbounded
+     * @return the simulation in its final state
+     */
+    public Simulation play(double speed) {
+        Simulation simulation = new Simulation(Levels.forDifficulty(difficulty), seed);
+        long tickNanos = Simulation.TICK_MILLIS * 1_000_000L;
+        long start = System.nanoTime();
+        long ticksRun = 0;
+        int next = 0;
+
+        while (true) {
+            if (next < count && codes[next] == CODE_RESTART && ticks[next] == simulation.getTick()) {
+                simulation.restart();
+                next++;
+                continue;
+            }
+
+            // Done at the recorded end, or when nothing more is known (cut short)
+            boolean inputsLeft = next < count;
+            if (simulation.isGameOver() || (!inputsLeft && (!complete || simulation.getTick() >= endTick))) {
+                return simulation;
+            }
+
+            if (speed > 0) {
+                long due = (long) ((System.nanoTime() - start) * speed / tickNanos);
+                if (ticksRun >= due) {
+                    long wait = (long) ((ticksRun + 1) * tickNanos / speed) - (System.nanoTime() - start);
+                    sleepNanos(wait);
+                    continue;
+                }
+            }
+
+            Direction input = null;
+            if (inputsLeft && codes[next] != CODE_RESTART && ticks[next] <= simulation.getTick()) {
+                input = DIRECTIONS[codes[next++]];
+            }
+            simulation.step(input);
+            ticksRun++;
+        }
+    }
+
+    /** True if the simulation ended the way the recording did. */
+    public boolean matches(Simulation simulation) {
+        return complete && simulation.getTick() == endTick
+                && simulation.getScore() == endScore && simulation.getLives() == endLives;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) return;
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java Replay file.replay [speed]");
+            return;
+        }
+        Replay replay = read(Path.of(args[0]));
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+
+        long t0 = System.nanoTime();
+        Simulation result = replay.play(speed);
+        double millis = (System.nanoTime() - t0) / 1e6;
+
+        System.out.printf("%s seed %d: %d inputs, %d ticks (%.1fs of play) replayed in %.1f ms%n",
+                replay.difficulty, replay.seed, replay.count, result.getTick(),
+                result.getTick() * Simulation.TICK_MILLIS / 1000.0, millis);
+        System.out.printf("score %d, lives %d%n", result.getScore(), result.getLives());
+        if (replay.complete) {
+            System.out.println(replay.matches(result) ? "matches the recording"
+                    : "DIVERGED: recording ended at tick " + replay.endTick + " with score " + replay.endScore
+                    + " and " + replay.endLives + " lives");
+        } else {
+            System.out.println("recording has no end record (cut short)");
+        }
+    }
+
+    // Getters
+    public GameSettings.Difficulty getDifficulty() { return difficulty; }
+    public long getSeed() { return seed; }
+    public int getInputCount() { return count; }
+    public boolean isComplete() { return complete; }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Regression check for recording and replay. Plays games through a
+ * GameSession the way a window does: input arrives through the mailbox,
+ * the session is paused for a while (with input still arriving), restarted
+ * in the middle of a game and again after it ends. Each recording is then
+ * replayed as fast as possible and must end on the same tick, score and
+ * lives. Exits with status 1 if any replay diverges.
+ *
+ * Run with: java -cp target/classes ReplayCheck [games]
+ */
+public class ReplayCheck {
+    private static final int MID_GAME_RESTART_TICK = 400;
+    private static final int PAUSE_FROM_TICK = 200;
+    private static final int PAUSE_STEPS = 50;
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        GameSettings.Difficulty[] difficulties = GameSettings.Difficulty.values();
+
+        int failed = 0;
+        for (int i = 0; i < games; i++) {
+            long seed = BatchRunner.seedFor(3, i);
+            SessionSettings settings = SessionSettings.headless(difficulties[i % difficulties.length], seed);
+            Path file = Files.createTempFile("pacman-check-", ".replay");
+            try {
+                Simulation recorded = record(settings, new PelletBot(seed), file);
+                Replay replay = Replay.read(file);
+                Simulation replayed = replay.play(0);
+                boolean matches = replay.isComplete() && replay.matches(replayed);
+                System.out.printf("%-7s seed %016x: %d inputs, %d bytes, tick %d score %d -> %s%n",
+                        settings.getDifficulty(), seed, replay.getInputCount(), Files.size(file),
+                        recorded.getTick(), recorded.getScore(), matches ? "replay matches" : "replay DIVERGED");
+                if (!matches) failed++;
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        System.out.println(failed == 0 ? "all replays matched" : failed + " replays DIVERGED");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    // One session: a pause, a restart mid-game, a game played to the end, a restart and another full game
+    private static Simulation record(SessionSettings settings, PlayerBot bot, Path file) throws IOException {
+        GameSession session = new GameSession(1, settings, null);
+        ReplayRecorder recorder = new ReplayRecorder(file, settings.getDifficulty(), settings.getSeed());
+        session.setRecorder(recorder);
+        Simulation simulation = session.getSimulation();
+
+        playUntil(session, bot, MID_GAME_RESTART_TICK);
+        session.restart();
+        playUntil(session, bot, Long.MAX_VALUE);
+        session.restart();
+        playUntil(session, bot, Long.MAX_VALUE);
+
+        recorder.close(simulation);
+        return simulation;
+    }
+
+    private static void playUntil(GameSession session, PlayerBot bot, long tick) {
+        Simulation simulation = session.getSimulation();
+        boolean paused = false;
+        while (!session.isFinished() && simulation.getTick() < tick) {
+            session.submitInput(bot.nextInput(simulation));
+            if (simulation.getTick() == PAUSE_FROM_TICK && !paused) {
+                // Nothing runs while paused; the input queued last is applied afterwards
+                session.setPaused(true);
+                for (int i = 0; i < PAUSE_STEPS; i++) {
+                    session.submitInput(bot.nextInput(simulation));
+                    session.runTicks(1);
+                }
+                session.setPaused(false);
+                paused = true;
+            }
+            session.runTicks(1);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import utils.Direction;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Streams a session's inputs to a replay file (format in Replay).
+ * The game loop only appends a few bytes to an in-memory chunk; full chunks
+ * are handed to a background writer thread, so recording never waits on the
+ * disk. The session also flushes a partial chunk every few seconds and on
+ * each restart and game over, so a crash loses at most that much play.
+ * Inputs are stamped with the simulation tick they were applied on, which
+ * together with the seed is all a deterministic replay needs. ReplayCheck
+ * records and replays sessions as a regression check.
+ */
+public class ReplayRecorder {
+    private static final int CHUNK_SIZE = 4096;
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> pendingChunks = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final OutputStream out;
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int length = 0;
+    private long lastTick = 0;
+    private boolean closed = false;
+    private volatile IOException failure;
+
+    public ReplayRecorder(Path file, GameSettings.Difficulty difficulty, long seed) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+
+        putInt(Replay.MAGIC);
+        putByte(Replay.VERSION);
+        putByte(difficulty.ordinal());
+        putLong(seed);
+        putVarLong(Simulation.TICK_MILLIS);
+
+        writer = new Thread(this::writeLoop, "replay-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public synchronized void recordInput(long tick, Direction direction) {
+        append(tick, direction.ordinal());
+    }
+
+    /** The simulation restarted; ticks count from zero again afterwards. Flushes the game before. */
+    public synchronized void recordRestart(long tick) {
+        append(tick, Replay.CODE_RESTART);
+        lastTick = 0;
+        flush();
+    }
+
+    /** Hands what has been recorded so far to the writer. */
+    public synchronized void flush() {
+        if (closed || length == 0) return;
+        byte[] partial = new byte[length];
+        System.arraycopy(chunk, 0, partial, 0, length);
+        pendingChunks.add(partial);
+        length = 0;
+    }
+
+    /**
+     * Ends the recording with the final tick, score and lives so a replay can
+     * check it reproduced the same game, then waits for the file to be written.
+     */
+    public synchronized void close(Simulation simulation) throws IOException {
+        if (closed) return;
+        append(simulation.getTick(), Replay.CODE_END);
+        putVarLong(simulation.getScore());
+        putVarLong(simulation.getLives());
+        flush();
+        closed = true;
+
+        pendingChunks.add(END_OF_STREAM);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Each record is one varint: tick delta in the high bits, 3-bit code below
+    private void append(long tick, int code) {
+        if (closed) return;
+        putVarLong(((tick - lastTick) << 3) | code);
+        lastTick = tick;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                byte[] next = pendingChunks.take();
+                if (next == END_OF_STREAM) break;
+                if (failure != null) continue;
+                try {
+                    out.write(next);
+                    if (pendingChunks.isEmpty()) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+    }
+
+    private void ensureSpace(int bytes) {
+        if (length + bytes > chunk.length) {
+            byte[] full = length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
+            pendingChunks.add(full);
+            chunk = new byte[CHUNK_SIZE];
+            length = 0;
+        }
+    }
+
+    private void putByte(int value) {
+        ensureSpace(1);
+        chunk[length++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        ensureSpace(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            chunk[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void putLong(long value) {
+        ensureSpace(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            chunk[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void putVarLong(long value) {
+        ensureSpace(10);
+        while ((value & ~0x7FL) != 0) {
+            chunk[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        chunk[length++] = (byte) value;
+    }
+}
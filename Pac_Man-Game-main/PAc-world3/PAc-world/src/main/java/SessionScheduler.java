@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Hosts many GameSessions in one process on a shared work-stealing pool.
+ * A driver thread runs rounds; each round visits every open session once
+ * and splits them across the workers, so no session is stepped by two
+ * threads at the same time and each gets the same share per round:
+ * - REAL_TIME: a round every tick period, each session runs the ticks its
+ *   own clock says are due (for human or remote players).
+ * - UNPACED: rounds run back to back and every session runs a fixed tick
+ *   quota per round (for bot leagues and other headless runs).
+ * Finished sessions are closed after the round and handed to the listener.
+ *
+ * Run with: java -cp target/classes SessionScheduler [sessions] [threads]
+ * to host that many bot games at once and report throughput and memory.
+ */
+public class SessionScheduler {
+    public enum Pacing { REAL_TIME, UNPACED }
+
+    // Sessions per leaf task
+    private static final int SESSIONS_PER_TASK = 16;
+
+    private final ForkJoinPool workers;
+    private final Pacing pacing;
+    private final int ticksPerRound;
+    private final Consumer<GameSession> onFinished;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Object sessionsLock = new Object();
+    private volatile GameSession[] sessions = new GameSession[0];
+    private volatile boolean running = false;
+    private Thread driver;
+
+    // Statistics
+    private final LongAdder ticksRun = new LongAdder();
+    private volatile long rounds = 0;
+    private volatile long overruns = 0;
+
+    /**
+     * @param threads worker threads
+     * @param ticksPerRound tick quota per session and round when UNPACED
+     * @param onFinished called (on the driver thread) for each session whose game ended; may be null
+     */
+    public SessionScheduler(int threads, Pacing pacing, int ticksPerRound, Consumer<GameSession> onFinished) {
+        this.workers = new ForkJoinPool(threads);
+        this.pacing = pacing;
+        this.ticksPerRound = Math.max(1, ticksPerRound);
+        this.onFinished = onFinished;
+    }
+
+    /** Creates a session and schedules it from the next round on. */
+    public GameSession open(SessionSettings settings, PlayerBot bot) {
+        GameSession session = new GameSession(nextId.incrementAndGet(), settings, bot);
+        synchronized (sessionsLock) {
+            GameSession[] grown = Arrays.copyOf(sessions, sessions.length + 1);
+            grown[sessions.length] = session;
+            sessions = grown;
+        }
+        return session;
+    }
+
+    /** Stops scheduling a session. Has no effect if it is not open. */
+    public void close(GameSession session) {
+        synchronized (sessionsLock) {
+            List<GameSession> kept = new ArrayList<>(sessions.length);
+            for (GameSession open : sessions) {
+                if (open != session) kept.add(open);
+            }
+            sessions = kept.toArray(new GameSession[0]);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        driver = new Thread(this::drive, "session-scheduler");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (driver != null) {
+            driver.interrupt();
+            try {
+                driver.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            driver = null;
+        }
+        workers.shutdown();
+    }
+
+    private void drive() {
+        long tickNanos = Simulation.TICK_MILLIS * 1_000_000L;
+        long nextRound = System.nanoTime();
+        while (running) {
+            runRound(System.nanoTime());
+
+            if (pacing == Pacing.UNPACED) {
+                if (sessions.length == 0) {
+                    // Nothing to do; don't spin
+                    if (!sleepNanos(tickNanos)) return;
+                }
+                continue;
+            }
+
+            nextRound += tickNanos;
+            long wait = nextRound - System.nanoTime();
+            if (wait < 0) {
+                // The round took longer than a tick; sessions' clocks catch up next time
+                overruns++;
+                nextRound = System.nanoTime();
+            } else if (!sleepNanos(wait)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs one round over every open session. Called by the driver thread;
+     * can also be called directly when the scheduler is not started.
+     */
+    public void runRound(long nowNanos) {
+        GameSession[] round = sessions;
+        if (round.length == 0) return;
+
+        workers.invoke(new RoundTask(round, 0, round.length, nowNanos));
+        rounds++;
+
+        List<GameSession> finished = null;
+        for (GameSession session : round) {
+            if (session.isFinished()) {
+                if (finished == null) finished = new ArrayList<>();
+                finished.add(session);
+            }
+        }
+        if (finished == null) return;
+
+        // One rebuild for all sessions that ended this round
+        synchronized (sessionsLock) {
+            List<GameSession> kept = new ArrayList<>(sessions.length);
+            for (GameSession open : sessions) {
+                if (!open.isFinished()) kept.add(open);
+            }
+            sessions = kept.toArray(new GameSession[0]);
+        }
+        if (onFinished != null) {
+            for (GameSession session : finished) {
+                onFinished.accept(session);
+            }
+        }
+    }
+
+    private final class RoundTask extends RecursiveAction {
+        private final GameSession[] round;
+        private final int from;
+        private final int to;
+        private final long nowNanos;
+
+        RoundTask(GameSession[] round, int from, int to, long nowNanos) {
+            this.round = round;
+            this.from = from;
+            this.to = to;
+            this.nowNanos = nowNanos;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SESSIONS_PER_TASK) {
+                long before = 0;
+                long after = 0;
+                for (int i = from; i < to; i++) {
+                    GameSession session = round[i];
+                    before += session.getSimulation().getTick();
+                    if (pacing == Pacing.REAL_TIME) {
+                        session.advance(nowNanos);
+                    } else {
+                        session.runTicks(ticksPerRound);
+                    }
+                    after += session.getSimulation().getTick();
+                }
+                ticksRun.add(after - before);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RoundTask(round, from, mid, nowNanos), new RoundTask(round, mid, to, nowNanos));
+        }
+    }
+
+    private static boolean sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Getters
+    public int getSessionCount() { return sessions.length; }
+    public long getTicksRun() { return ticksRun.sum(); }
+    public long getRounds() { return rounds; }
+    public long getOverruns() { return overruns; }
+    public Pacing getPacing() { return pacing; }
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        LongAdder finishedGames = new LongAdder();
+        SessionScheduler scheduler = new SessionScheduler(threads, Pacing.UNPACED, 32, s -> finishedGames.increment());
+        GameSettings.Difficulty[] difficulties = GameSettings.Difficulty.values();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; i < count; i++) {
+            long seed = BatchRunner.seedFor(7, i);
+            scheduler.open(SessionSettings.headless(difficulties[i % difficulties.length], seed), new PelletBot(seed));
+        }
+        System.gc();
+        long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%d sessions open, about %.1f KB each%n", count, (usedAfter - usedBefore) / 1024.0 / count);
+
+        long t0 = System.nanoTime();
+        scheduler.start();
+        while (scheduler.getSessionCount() > 0) {
+            Thread.sleep(100);
+        }
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        scheduler.stop();
+
+        System.out.printf("%d games finished on %d threads in %.2fs: %.2fM ticks/s over %d rounds%n",
+                finishedGames.sum(), threads, seconds, scheduler.getTicksRun() / seconds / 1e6, scheduler.getRounds());
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Settings owned by one game session. Unlike the static GameSettings used
+ * by the menu, these are fixed when the session is created, so sessions in
+ * the same process never see each other's choices.
+ */
+public class SessionSettings {
+    private final GameSettings.Difficulty difficulty;
+    private final boolean soundEnabled;
+    private final long seed;
+
+    public SessionSettings(GameSettings.Difficulty difficulty, boolean soundEnabled, long seed) {
+        this.difficulty = difficulty;
+        this.soundEnabled = soundEnabled;
+        this.seed = seed;
+    }
+
+    /** Snapshot of the menu's current choices, with a fresh seed. */
+    public static SessionSettings fromGlobal() {
+        return new SessionSettings(GameSettings.getDifficulty(), GameSettings.isSoundEnabled(), System.nanoTime());
+    }
+
+    /** Settings for a headless session: no sound. */
+    public static SessionSettings headless(GameSettings.Difficulty difficulty, long seed) {
+        return new SessionSettings(difficulty, false, seed);
+    }
+
+    // Getters
+    public GameSettings.Difficulty getDifficulty() { return difficulty; }
+    public boolean isSoundEnabled() { return soundEnabled; }
+    public long getSeed() { return seed; }
+}
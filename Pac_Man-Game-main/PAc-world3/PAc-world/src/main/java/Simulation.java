@@ -0,0 +1,560 @@
+import entities.*;
+import utils.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless game rules: board, player, ghosts and scoring.
+ * Nothing here touches AWT, Swing or sound, so it can be stepped as fast as
+ * the CPU allows for balancing runs and regression checks. Game wraps it with
+ * rendering, sound and input; everything the player should hear about is
+ * reported through the event flags returned by step().
+ *
+ * All randomness comes from the seed, so two simulations with the same map,
+ * seed and inputs play out identically.
+ */
+public class Simulation {
+    // Speeds are in pixels per tick and were tuned for 16 ms ticks
+    public static final int TICK_MILLIS = 16;
+
+    // Event flags returned by step()
+    public static final int EVENT_GHOST_EATEN = 1;
+    public static final int EVENT_PLAYER_DIED = 1 << 1;
+    public static final int EVENT_GAME_LOST = 1 << 2;
+    public static final int EVENT_POWER_PELLET = 1 << 3;
+    public static final int EVENT_FRUIT = 1 << 4;
+    public static final int EVENT_LEVEL_CLEARED = 1 << 5;
+    public static final int EVENT_GAME_OVER = 1 << 6;
+
+    private static final int STARTING_LIVES = 3;
+    private static final int GHOST_POINTS = 200;
+    private static final int POWER_PELLET_TICKS = ticksFor(10_000);
+    private static final int POWER_WARNING_TICKS = ticksFor(2_000);
+    private static final int POWER_FLASH_TICKS = ticksFor(320);
+    private static final int LEVEL_COMPLETE_TICKS = ticksFor(3_000);
+
+    private final String[] tileMap;
+    private final long seed;
+    private int restarts = -1;
+    private GameRandom random;
+    private Board board;
+    private Player player;
+    private int score = 0;
+    private int lives = STARTING_LIVES;
+    private boolean gameOver = false;
+    private boolean gameWon = false;
+    private boolean powerPelletActive = false;
+    private int powerPelletTimer = 0;
+    private int levelCompleteTimer = 0;
+    private long tick = 0;
+    private GameSnapshot copyBuffer;
+    private ForkJoinPool aiPool;
+
+    public Simulation(String[] tileMap, long seed) {
+        this.tileMap = tileMap;
+        this.seed = seed;
+        restart();
+    }
+
+    /** A simulation on the given map in the state of a snapshot (format in GameSnapshot). */
+    public static Simulation fromSnapshot(String[] tileMap, ByteBuffer buffer) {
+        Simulation simulation = new Simulation(tileMap, GameSnapshot.peekSeed(buffer));
+        simulation.readSnapshot(buffer);
+        return simulation;
+    }
+
+    /**
+     * Starts over on a freshly loaded board with full lives and no score.
+     * Each game gets its own random stream, derived from the seed and how
+     * many restarts came before it, so a replay that restarts at the same
+     * ticks plays every game the same way again.
+     */
+    public void restart() {
+        restarts++;
+        random = new GameRandom(seedForGame(seed, restarts));
+        board = new Board(tileMap);
+        board.loadMap(random);
+        if (board.getSwarm() != null) {
+            board.getSwarm().setPool(aiPool);
+        }
+
+        player = new Player(board.getPlayerStartX(), board.getPlayerStartY(),
+                board.getTileSize(), board.getTileSize());
+
+        score = 0;
+        lives = STARTING_LIVES;
+        gameOver = false;
+        gameWon = false;
+        levelCompleteTimer = 0;
+        tick = 0;
+        resetPositions();
+    }
+
+    /**
+     * Advances the game by one tick.
+     * @param input direction requested this tick, or null for none
+     * @return the EVENT_ flags for what happened during the tick
+     */
+    public int step(Direction input) {
+        player.savePreviousPosition();
+        for (Ghost ghost : board.getGhosts()) {
+            ghost.savePreviousPosition();
+        }
+        GhostSwarm swarm = board.getSwarm();
+        if (swarm != null) {
+            swarm.savePreviousPositions();
+        }
+
+        if (gameOver)
+            return 0;
+
+        tick++;
+        if (input != null) {
+            tryTurn(input);
+        }
+
+        // The cleared level keeps running for a moment before the victory screen
+        if (gameWon && --levelCompleteTimer <= 0) {
+            gameOver = true;
+            return EVENT_GAME_OVER;
+        }
+
+        int events = 0;
+
+        // Update power pellet timer
+        if (powerPelletActive) {
+            powerPelletTimer--;
+
+            // Flashing effect when time is running out
+            if (powerPelletTimer < POWER_WARNING_TICKS) {
+                boolean scared = powerPelletTimer % POWER_FLASH_TICKS >= POWER_FLASH_TICKS / 2;
+                for (Ghost ghost : board.getGhosts()) {
+                    ghost.setScared(scared);
+                }
+                if (swarm != null) {
+                    swarm.setAllScared(scared);
+                }
+            }
+
+            if (powerPelletTimer <= 0) {
+                powerPelletActive = false;
+                clearScared();
+            }
+        }
+
+        // Player movement
+        player.updatePosition();
+
+        // Wall collision for player
+        if (board.collidesWithWall(player)) {
+            player.setX(player.getX() - player.getVelocityX());
+            player.setY(player.getY() - player.getVelocityY());
+        }
+
+        // Screen wrapping (tunnels)
+        if (player.getX() < -player.getWidth()) {
+            player.setX(board.getBoardWidth());
+        } else if (player.getX() > board.getBoardWidth()) {
+            player.setX(-player.getWidth());
+        }
+
+        // One BFS toward the player, shared by every chasing ghost
+        board.updatePlayerDistanceField(player);
+
+        for (Ghost ghost : board.getGhosts()) {
+            // Ghost collision with player
+            if (ghost.collidesWith(player)) {
+                if (powerPelletActive && ghost.isScared()) {
+                    ghost.reset();
+                    score += GHOST_POINTS;
+                    events |= EVENT_GHOST_EATEN;
+                } else {
+                    lives--;
+                    if (lives == 0) {
+                        gameOver = true;
+                        gameWon = false;
+                        return events | EVENT_PLAYER_DIED | EVENT_GAME_LOST | EVENT_GAME_OVER;
+                    }
+                    resetPositions();
+                    return events | EVENT_PLAYER_DIED;
+                }
+            }
+
+            moveGhost(ghost);
+        }
+
+        if (swarm != null) {
+            int hit = -1;
+            while ((hit = swarm.findCollision(player.getX(), player.getY(), board.getTileSize(), hit + 1)) >= 0) {
+                if (powerPelletActive && swarm.isScared(hit)) {
+                    swarm.respawn(hit);
+                    score += GHOST_POINTS;
+                    events |= EVENT_GHOST_EATEN;
+                } else {
+                    lives--;
+                    if (lives == 0) {
+                        gameOver = true;
+                        gameWon = false;
+                        return events | EVENT_PLAYER_DIED | EVENT_GAME_LOST | EVENT_GAME_OVER;
+                    }
+                    resetPositions();
+                    return events | EVENT_PLAYER_DIED;
+                }
+            }
+            swarm.update(board.getNavigation().getPlayerDistance());
+        }
+
+        // Food collection by the tile under the player's centre
+        int tileSize = board.getTileSize();
+        int playerCol = Math.floorDiv(player.getX() + player.getWidth() / 2, tileSize);
+        int playerRow = Math.floorDiv(player.getY() + player.getHeight() / 2, tileSize);
+        PelletLayer.Kind foodEaten = board.getFoods().eatAt(playerCol, playerRow);
+        if (foodEaten != null) {
+            score += foodEaten.getPoints();
+
+            if (foodEaten == PelletLayer.Kind.POWER_PELLET) {
+                activatePowerPellet();
+                events |= EVENT_POWER_PELLET;
+            } else if (foodEaten == PelletLayer.Kind.CHERRY) {
+                events |= EVENT_FRUIT;
+            }
+        }
+
+        // Level completion check
+        if (board.getFoods().getRemaining() == 0 && !gameWon) {
+            gameWon = true;
+            levelCompleteTimer = LEVEL_COMPLETE_TICKS;
+            events |= EVENT_LEVEL_CLEARED;
+        }
+
+        return events;
+    }
+
+    // Sửa lỗi trong moveGhostWithEnhancedAI - cải thiện movement
+    private void moveGhost(Ghost ghost) {
+        int oldX = ghost.getX();
+        int oldY = ghost.getY();
+
+        // Update ghost AI
+        ghost.updateAI(player, board.getNavigation(), board.getTileSize());
+
+        // Đảm bảo ghost có velocity
+        ghost.ensureMovement();
+
+        // Move ghost
+        ghost.updatePosition();
+
+        // Check collision
+        boolean collision = board.collidesWithWall(ghost);
+
+        // Check boundaries - cho phép đi qua tunnel
+        boolean isTunnel = isTunnelRow(ghost.getY() + ghost.getHeight() / 2) &&
+                (ghost.getX() < 0 || ghost.getX() > board.getBoardWidth());
+
+        if (!isTunnel && (ghost.getY() <= 0 || ghost.getY() + ghost.getHeight() >= board.getBoardHeight())) {
+            collision = true;
+        }
+
+        // Handle collision
+        if (collision) {
+            ghost.setX(oldX);
+            ghost.setY(oldY);
+
+            // Force emergency direction
+            for (Direction dir : Direction.values()) {
+                if (isGhostDirectionValid(ghost, dir)) {
+                    ghost.setDirection(dir);
+                    break;
+                }
+            }
+        }
+
+        // Handle screen wrapping với logic chính xác hơn
+        if (ghost.getX() < -ghost.getWidth()) {
+            ghost.setX(board.getBoardWidth());
+        } else if (ghost.getX() > board.getBoardWidth()) {
+            ghost.setX(-ghost.getWidth());
+        }
+    }
+
+    private void clearScared() {
+        for (Ghost ghost : board.getGhosts()) {
+            ghost.setScared(false);
+        }
+        if (board.getSwarm() != null) {
+            board.getSwarm().setAllScared(false);
+        }
+    }
+
+    private void resetPositions() {
+        // Reset player position and direction
+        player.reset();
+        player.setVelocityX(0);
+        player.setVelocityY(0);
+
+        // Reset all ghosts
+        for (Ghost ghost : board.getGhosts()) {
+            ghost.reset();
+        }
+        if (board.getSwarm() != null) {
+            board.getSwarm().reset();
+        }
+
+        // Reset power pellet state
+        powerPelletActive = false;
+        powerPelletTimer = 0;
+        clearScared();
+    }
+
+    // Sửa lỗi trong isGhostDirectionValid - cải thiện validation
+    private boolean isGhostDirectionValid(Ghost ghost, Direction dir) {
+        if (dir == null)
+            return false;
+
+        int newX = ghost.getX();
+        int newY = ghost.getY();
+        int speed = ghost.isScared() ? 2 : 3;
+
+        switch (dir) {
+            case UP:
+                newY -= speed;
+                break;
+            case DOWN:
+                newY += speed;
+                break;
+            case LEFT:
+                newX -= speed;
+                break;
+            case RIGHT:
+                newX += speed;
+                break;
+        }
+
+        // Check boundaries with improved tunnel logic
+        boolean isTunnel = isTunnelRow(newY + ghost.getHeight() / 2) &&
+                (newX < 0 || newX > board.getBoardWidth());
+
+        if (!isTunnel && (newY < 0 || newY + ghost.getHeight() >= board.getBoardHeight())) {
+            return false;
+        }
+
+        // Check wall collision
+        return !board.getGrid().overlapsWall(newX, newY, ghost.getWidth(), ghost.getHeight());
+    }
+
+    // Tunnel rows come from the map: both edge tiles of the row are open
+    private boolean isTunnelRow(int pixelY) {
+        return board.getGrid().isPortalRow(Math.floorDiv(pixelY, board.getTileSize()));
+    }
+
+    private void activatePowerPellet() {
+        powerPelletActive = true;
+        powerPelletTimer = POWER_PELLET_TICKS;
+
+        for (Ghost ghost : board.getGhosts()) {
+            ghost.setScared(true);
+
+            // Thêm code để tránh ghost bị stuck khi bật power pellet
+            Direction currentDir = ghost.getDirection();
+            Direction opposite = getOppositeDirection(currentDir);
+
+            // Cố gắng thay đổi hướng khi bật power pellet (tránh đi tiếp vào player)
+            for (Direction dir : Direction.values()) {
+                if (dir != currentDir && dir != opposite && isGhostDirectionValid(ghost, dir)) {
+                    ghost.setDirection(dir);
+                    break;
+                }
+            }
+        }
+        if (board.getSwarm() != null) {
+            board.getSwarm().frightenAll();
+        }
+    }
+
+    private static Direction getOppositeDirection(Direction dir) {
+        switch (dir) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            case RIGHT:
+                return Direction.LEFT;
+            default:
+                return Direction.UP;
+        }
+    }
+
+    private void tryTurn(Direction newDirection) {
+        int currentX = player.getX();
+        int currentY = player.getY();
+        int tileSize = board.getTileSize();
+
+        int alignedX = Math.round((float) currentX / tileSize) * tileSize;
+        int alignedY = Math.round((float) currentY / tileSize) * tileSize;
+
+        // Tăng tolerance để dễ chuyển hướng hơn
+        int tolerance = tileSize / 2;
+
+        boolean closeToAlignedPosition = Math.abs(currentX - alignedX) <= tolerance &&
+                Math.abs(currentY - alignedY) <= tolerance;
+
+        if (closeToAlignedPosition) {
+            if ((newDirection == Direction.UP || newDirection == Direction.DOWN) &&
+                    Math.abs(currentX - alignedX) <= tolerance) {
+                player.setX(alignedX);
+            }
+
+            if ((newDirection == Direction.LEFT || newDirection == Direction.RIGHT) &&
+                    Math.abs(currentY - alignedY) <= tolerance) {
+                player.setY(alignedY);
+            }
+
+            // Lưu hướng cũ để phục hồi nếu cần
+            Direction oldDirection = player.getDirection();
+
+            player.updateDirection(newDirection, tileSize);
+            player.updatePosition();
+
+            if (board.collidesWithWall(player)) {
+                player.setX(currentX);
+                player.setY(currentY);
+                player.updateDirection(oldDirection, tileSize);
+            }
+        } else if (getOppositeDirection(player.getDirection()) == newDirection) {
+            // Always allow reversing direction immediately
+            player.updateDirection(newDirection, tileSize);
+        }
+    }
+
+    /**
+     * Writes the complete game state at the buffer's position: everything
+     * that changes while playing, including each ghost's random stream, so a
+     * restored copy continues exactly like the original.
+     */
+    public void writeSnapshot(ByteBuffer buffer) {
+        List<Ghost> ghosts = board.getGhosts();
+        GhostSwarm swarm = board.getSwarm();
+        buffer.putInt(GameSnapshot.MAGIC).put(GameSnapshot.VERSION);
+        buffer.putLong(seed).putInt(Arrays.hashCode(tileMap)).putInt(ghosts.size());
+        buffer.putInt(swarm == null ? 0 : swarm.size()).putInt(restarts);
+        buffer.putLong(tick).putInt(score).putInt(lives);
+        buffer.put((byte) ((gameOver ? 1 : 0) | (gameWon ? 2 : 0) | (powerPelletActive ? 4 : 0)));
+        buffer.putInt(powerPelletTimer).putInt(levelCompleteTimer);
+        buffer.putInt(board.getNavigation().getPlayerDistance().getSourceTile());
+
+        player.writeState(buffer);
+        for (Ghost ghost : ghosts) {
+            ghost.writeState(buffer);
+        }
+        if (swarm != null) {
+            swarm.writeState(buffer);
+        }
+        board.getFoods().writeState(buffer);
+    }
+
+    /**
+     * Replaces the game state with a snapshot read from the buffer's position.
+     * @throws IllegalArgumentException if the snapshot is from another map or seed
+     */
+    public void readSnapshot(ByteBuffer buffer) {
+        List<Ghost> ghosts = board.getGhosts();
+        GhostSwarm swarm = board.getSwarm();
+        if (buffer.getInt() != GameSnapshot.MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        byte version = buffer.get();
+        if (version != GameSnapshot.VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        if (buffer.getLong() != seed || buffer.getInt() != Arrays.hashCode(tileMap)
+                || buffer.getInt() != ghosts.size() || buffer.getInt() != (swarm == null ? 0 : swarm.size())) {
+            throw new IllegalArgumentException("Snapshot is from a different map or seed");
+        }
+
+        restarts = buffer.getInt();
+        tick = buffer.getLong();
+        score = buffer.getInt();
+        lives = buffer.getInt();
+        byte flags = buffer.get();
+        gameOver = (flags & 1) != 0;
+        gameWon = (flags & 2) != 0;
+        powerPelletActive = (flags & 4) != 0;
+        powerPelletTimer = buffer.getInt();
+        levelCompleteTimer = buffer.getInt();
+
+        // The distance field only reruns its BFS when the source moves, so put it back where it was
+        DistanceField playerDistance = board.getNavigation().getPlayerDistance();
+        int sourceTile = buffer.getInt();
+        if (sourceTile < 0) {
+            playerDistance.clear();
+        } else {
+            int columns = board.getColumnCount();
+            playerDistance.update(sourceTile % columns, sourceTile / columns);
+        }
+
+        player.readState(buffer);
+        for (Ghost ghost : ghosts) {
+            ghost.readState(buffer);
+        }
+        if (swarm != null) {
+            swarm.readState(buffer);
+        }
+        board.getFoods().readState(buffer);
+    }
+
+    /** Seed of the game after the given number of restarts; the first game plays the seed itself. */
+    public static long seedForGame(long seed, int restarts) {
+        return restarts == 0 ? seed : GameRandom.mix64(seed + restarts * GameRandom.GOLDEN_GAMMA);
+    }
+
+    /** Makes this simulation an exact copy of another one on the same map and seed. */
+    public void copyFrom(Simulation other) {
+        if (copyBuffer == null) {
+            copyBuffer = new GameSnapshot();
+        }
+        copyBuffer.capture(other);
+        copyBuffer.restore(this);
+    }
+
+    /** An independent copy; for repeated copies, reuse one with copyFrom(). */
+    public Simulation copy() {
+        Simulation copy = new Simulation(tileMap, seed);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Lets a large ghost swarm decide its moves in parallel on the pool
+     * (null for none). The game plays out the same with or without it.
+     */
+    public void setAiPool(ForkJoinPool pool) {
+        this.aiPool = pool;
+        if (board.getSwarm() != null) {
+            board.getSwarm().setPool(pool);
+        }
+    }
+
+    /** Whole ticks closest to the given duration (at least one). */
+    public static int ticksFor(int millis) {
+        return Math.max(1, (millis + TICK_MILLIS / 2) / TICK_MILLIS);
+    }
+
+    // Getters
+    public Board getBoard() { return board; }
+    public Player getPlayer() { return player; }
+    public int getScore() { return score; }
+    public int getLives() { return lives; }
+    public boolean isGameOver() { return gameOver; }
+    public boolean isGameWon() { return gameWon; }
+    public boolean isPowerPelletActive() { return powerPelletActive; }
+    public int getPowerPelletTimer() { return powerPelletTimer; }
+    public long getTick() { return tick; }
+    public long getSeed() { return seed; }
+    /** How many times the game has been restarted; 0 for the first game. */
+    public int getRestarts() { return restarts; }
+    public String[] getTileMap() { return tileMap; }
+}
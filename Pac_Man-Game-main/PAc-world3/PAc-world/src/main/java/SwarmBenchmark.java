@@ -0,0 +1,124 @@
+import entities.GhostSwarm;
+import utils.AiLevelOfDetail;
+import utils.Direction;
+import utils.TileGrid;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures simulation tick time with a ghost swarm on the hard maze, from a
+ * few dozen up to several thousand swarm ghosts. The player is driven by
+ * the pellet bot and restarted whenever the game ends. With threads above 1
+ * the swarm decides in parallel; the printed state hash must not depend on
+ * the thread count. A maze size runs on a generated maze of that size
+ * instead, where "full" turns the AI level of detail off for comparison.
+ * "ai ns" is the swarm's decision time per ghost and tick, against the
+ * per-ghost tick budget of AiLevelOfDetail.
+ *
+ * Run with: java -cp target/classes SwarmBenchmark [ticks] [threads] [mazeSize] [lod|full]
+ */
+public class SwarmBenchmark {
+    private static final int[] SWARM_SIZES = {50, 200, 500, 1000, 2000, 5000};
+
+    private static String[] baseMap;
+    private static boolean fullDetail;
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        int mazeSize = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        fullDetail = args.length > 3 && "full".equals(args[3]);
+        if (mazeSize > 0) {
+            baseMap = generatedMap(mazeSize);
+        }
+
+        // Warm-up so the JIT has compiled the swarm loop before timing
+        run(2000, ticks, pool, false);
+
+        System.out.printf("%-8s %10s %10s %10s %8s %8s  %s (%d threads, budget %d ns)%n", "ghosts", "mean us",
+                "p99 us", "max us", "cheap %", "ai ns", "state hash", threads,
+                AiLevelOfDetail.DEFAULT_TICK_BUDGET_NANOS);
+        for (int size : SWARM_SIZES) {
+            run(size, ticks, pool, true);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static void run(int ghosts, int ticks, ForkJoinPool pool, boolean print) {
+        String[] map = Levels.swarm(ghosts);
+        if (baseMap != null) {
+            map = Arrays.copyOf(baseMap, baseMap.length + 1);
+            map[baseMap.length] = "@swarm=" + ghosts;
+        }
+        Simulation simulation = new Simulation(map, 11);
+        simulation.setAiPool(pool);
+        if (fullDetail) {
+            // Everything counts as near the player
+            simulation.getBoard().getSwarm().setLevelOfDetail(new AiLevelOfDetail(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        }
+        PlayerBot bot = new PelletBot(11);
+        long[] times = new long[ticks];
+        long total = 0;
+        long hash = 0;
+        long aiNanos = 0;
+        for (int i = 0; i < ticks; i++) {
+            if (simulation.isGameOver()) {
+                // The restart builds a new swarm, which starts counting from zero
+                aiNanos += simulation.getBoard().getSwarm().getAiNanos();
+                simulation.restart();
+            }
+            Direction input = bot.nextInput(simulation);
+            long t0 = System.nanoTime();
+            simulation.step(input);
+            times[i] = System.nanoTime() - t0;
+            total += times[i];
+
+            // Fold the whole swarm into the hash now and then, outside the timing
+            if (i % 64 == 0) {
+                hash = hash(hash, simulation);
+            }
+        }
+        if (!print) return;
+
+        Arrays.sort(times);
+        GhostSwarm swarm = simulation.getBoard().getSwarm();
+        double cheapShare = 100.0 * swarm.getCheapDecisions()
+                / Math.max(1, swarm.getCheapDecisions() + swarm.getFullDecisions());
+        double aiNanosPerGhost = (double) (aiNanos + swarm.getAiNanos()) / ticks / swarm.size();
+        System.out.printf("%-8d %10.1f %10.1f %10.1f %8.1f %8.1f  %016x%n", swarm.size(),
+                total / 1e3 / ticks, times[(int) (ticks * 0.99)] / 1e3, times[ticks - 1] / 1e3, cheapShare,
+                aiNanosPerGhost, hash);
+    }
+
+    private static long hash(long hash, Simulation simulation) {
+        hash = hash * 31 + simulation.getTick() * 7 + simulation.getScore();
+        GhostSwarm swarm = simulation.getBoard().getSwarm();
+        for (int i = 0; i < swarm.size(); i++) {
+            hash = hash * 31 + swarm.getX(i) * 1009 + swarm.getY(i);
+        }
+        return hash;
+    }
+
+    // A braided maze as map rows: player top left, swarm spawns in the other corners
+    private static String[] generatedMap(int size) {
+        TileGrid grid = PathfindingBenchmark.generateMaze(size, size, new Random(size));
+        String[] rows = new String[size];
+        for (int r = 0; r < size; r++) {
+            StringBuilder row = new StringBuilder(size);
+            for (int c = 0; c < size; c++) {
+                row.append(grid.isWall(c, r) ? 'X' : ' ');
+            }
+            rows[r] = row.toString();
+        }
+        rows[1] = 'X' + "P" + rows[1].substring(2);
+        int last = size - 2;
+        rows[last] = rows[last].substring(0, last) + 'S' + rows[last].substring(last + 1);
+        rows[1] = rows[1].substring(0, last) + 'S' + rows[1].substring(last + 1);
+        rows[last] = 'X' + "S" + rows[last].substring(2);
+        return rows;
+    }
+}
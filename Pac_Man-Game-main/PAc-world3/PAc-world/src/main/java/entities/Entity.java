@@ -1,42 +1,50 @@
 package entities;
 
-import java.awt.Image;
-import java.awt.Rectangle;
 import utils.Direction;
+import java.nio.ByteBuffer;
 
 public abstract class Entity {
     protected int x;
     protected int y;
     protected int width;
     protected int height;
-    protected Image image;
     protected int startX;
     protected int startY;
+    // Position at the start of the current tick, for render interpolation
+    protected int previousX;
+    protected int previousY;
     protected Direction direction;
     protected int velocityX;
     protected int velocityY;
     
-    public Entity(Image image, int x, int y, int width, int height) {
-        this.image = image;
+    public Entity(int x, int y, int width, int height) {
         this.x = x;
         this.y = y;
         this.width = width;
         this.height = height;
         this.startX = x;
         this.startY = y;
+        this.previousX = x;
+        this.previousY = y;
     }
     
     public void reset() {
         this.x = this.startX;
         this.y = this.startY;
+        this.previousX = x;
+        this.previousY = y;
     }
     
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
+    /** Remembers the current position as the start of the next tick. */
+    public void savePreviousPosition() {
+        previousX = x;
+        previousY = y;
     }
     
     public boolean collidesWith(Entity other) {
-        return getBounds().intersects(other.getBounds());
+        // Axis-aligned box overlap; touching edges do not count
+        return x < other.x + other.width && other.x < x + width
+                && y < other.y + other.height && other.y < y + height;
     }
     
     public void updatePosition() {
@@ -44,19 +52,47 @@ public abstract class Entity {
         y += velocityY;
     }
     
+    /** Writes the moving state (position, direction, velocity) for a snapshot. */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putInt(x).putInt(y).putInt(previousX).putInt(previousY);
+        putDirection(buffer, direction);
+        buffer.putInt(velocityX).putInt(velocityY);
+    }
+    
+    /** Reads back what writeState wrote. */
+    public void readState(ByteBuffer buffer) {
+        x = buffer.getInt();
+        y = buffer.getInt();
+        previousX = buffer.getInt();
+        previousY = buffer.getInt();
+        direction = getDirection(buffer);
+        velocityX = buffer.getInt();
+        velocityY = buffer.getInt();
+    }
+    
+    // Directions are stored as their ordinal, -1 for none
+    protected static void putDirection(ByteBuffer buffer, Direction direction) {
+        buffer.put((byte) (direction == null ? -1 : direction.ordinal()));
+    }
+    
+    protected static Direction getDirection(ByteBuffer buffer) {
+        byte ordinal = buffer.get();
+        return ordinal < 0 ? null : Direction.values()[ordinal];
+    }
+    
     // Getters and setters
     public int getX() { return x; }
     public int getY() { return y; }
+    public int getPreviousX() { return previousX; }
+    public int getPreviousY() { return previousY; }
     public int getWidth() { return width; }
     public int getHeight() { return height; }
-    public Image getImage() { return image; }
     public Direction getDirection() { return direction; }
     public int getVelocityX() { return velocityX; }
     public int getVelocityY() { return velocityY; }
     
     public void setX(int x) { this.x = x; }
     public void setY(int y) { this.y = y; }
-    public void setImage(Image image) { this.image = image; }
     public void setDirection(Direction direction) { this.direction = direction; }
     public void setVelocityX(int velocityX) { this.velocityX = velocityX; }
     public void setVelocityY(int velocityY) { this.velocityY = velocityY; }
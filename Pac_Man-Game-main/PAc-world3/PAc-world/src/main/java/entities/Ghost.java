@@ -1,23 +1,59 @@
 package entities;
-import java.awt.Image;
-import java.util.Random;
+import java.nio.ByteBuffer;
 //import java.util.ArrayList;
 //import java.util.List;
+import utils.AiLevelOfDetail;
 import utils.Direction;
+import utils.DistanceField;
+import utils.GameRandom;
+import utils.MazeNavigation;
+import utils.NavGraph;
+import utils.Pathfinder;
+import utils.TileGrid;
 
 public class Ghost extends Entity {
-    private static final Random random = new Random();
-    private Image normalImage;
-    private Image scaredImage;
+    // Per-ghost stream split from the game's seed, so runs are reproducible
+    private final GameRandom random;
+    private final GhostType type;
     private boolean isScared = false;
     
     // **NEW: Grid-based movement variables**
     private int tileSize = 32; // Standard tile size
+    private TileGrid grid;
+    private int columnCount; // Board size, taken from the map grid
+    private int rowCount;
+    private NavGraph navGraph;
+    private DistanceField playerDistance;
+    private Pathfinder pathfinder;
     private boolean isMoving = false;
     private int targetX, targetY; // Target position for smooth movement
     private int moveProgress = 0; // Progress of current move (0-tileSize)
     private final int MOVE_SPEED = 3; // Pixels per frame (must divide tileSize evenly)
     
+    // Which ghost this is; the renderer picks the sprite from it
+    public enum GhostType {
+        RED('r'), BLUE('b'), PINK('p'), ORANGE('o');
+        
+        private final char mapSymbol;
+        
+        GhostType(char mapSymbol) {
+            this.mapSymbol = mapSymbol;
+        }
+        
+        public char getMapSymbol() {
+            return mapSymbol;
+        }
+        
+        public static GhostType fromMapSymbol(char symbol) {
+            for (GhostType type : values()) {
+                if (type.mapSymbol == symbol) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+    
     // Ghost behavior modes
     public enum GhostMode {
         SCATTER,    // Di chuyển về góc map
@@ -44,10 +80,26 @@ public class Ghost extends Entity {
     private Direction lastDirection = Direction.UP; // Thêm để tránh oscillation
     private Direction pendingDirection = null; // Direction to apply when current move finishes
     
-    public Ghost(Image normalImage, Image scaredImage, int x, int y, int width, int height) {
-        super(normalImage, x, y, width, height);
-        this.normalImage = normalImage;
-        this.scaredImage = scaredImage;
+    // Level of detail by distance to the player, and what the AI has spent
+    private int lodLevel = AiLevelOfDetail.NEAR;
+    private long fullDecisions = 0;
+    private long cheapDecisions = 0;
+    private long deferredDecisions = 0;
+    private boolean rethinkDeferred = false; // the current deferral has been counted
+    // Wall-clock AI cost per tick, averaged over about AI_COST_WINDOW ticks
+    private static final int AI_COST_WINDOW = 64;
+    private long averageAiNanos = 0;
+    private long maxAiNanos = 0;
+    private long overBudgetTicks = 0;
+    
+    public Ghost(GhostType type, int x, int y, int width, int height, TileGrid grid, GameRandom random) {
+        super(x, y, width, height);
+        this.type = type;
+        this.random = random;
+        this.grid = grid;
+        this.tileSize = grid.getTileSize();
+        this.columnCount = grid.getColumns();
+        this.rowCount = grid.getRows();
         this.direction = Direction.UP;
         this.lastDirection = Direction.UP;
         
@@ -185,10 +237,9 @@ public class Ghost extends Entity {
             return false;
         }
         
-        // Handle horizontal tunnels - more permissive
+        // Handle horizontal tunnels - rows whose both edges are open
         if (gridX < 0 || gridX >= columnCount) {
-            // Allow tunnel in middle area
-            return gridY >= 8 && gridY <= 12;
+            return grid == null || grid.isPortalRow(gridY);
         }
         
         // For now, assume position is valid if within bounds
@@ -199,15 +250,25 @@ public class Ghost extends Entity {
     /**
      * **UPDATED: AI update with grid-based movement**
      */
-    public void updateAI(Player player, java.util.HashSet<Wall> walls, int tileSize) {
+    public void updateAI(Player player, MazeNavigation navigation, int tileSize) {
+        long started = System.nanoTime();
         this.tileSize = tileSize;
+        this.grid = navigation.getGrid();
+        this.navGraph = navigation.getNavGraph();
+        this.playerDistance = navigation.getPlayerDistance();
+        this.pathfinder = navigation.getPathfinder();
         
         modeTimer++;
         directionTimer++;
         aiUpdateCounter++;
         
+        // Ghosts far from the player think less often and more cheaply
+        AiLevelOfDetail levelOfDetail = navigation.getLevelOfDetail();
+        lodLevel = levelOfDetail.levelFor(playerDistance.getDistance(getGridX(), getGridY()));
+        int interval = levelOfDetail.intervalFor(lodLevel);
+        
         // **FIX: Less aggressive recovery system**
-        if (aiUpdateCounter % 180 == 0) { // Every 3 seconds instead of 2
+        if (aiUpdateCounter % (180 * interval) == 0) { // Every 3 seconds instead of 2
             if (!isMoving && moveProgress == 0) {
                 snapToGrid();
                 this.targetX = this.x;
@@ -215,7 +276,7 @@ public class Ghost extends Entity {
                 
                 Direction[] directions = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
                 for (Direction dir : directions) {
-                    if (isValidDirection(dir, walls, tileSize)) {
+                    if (isValidDirection(dir, grid, tileSize)) {
                         startMovement(dir);
                         break;
                     }
@@ -226,13 +287,30 @@ public class Ghost extends Entity {
         // Update ghost mode based on timer and game state
         updateGhostMode();
         
+        // Inside a corridor there is only one way forward, so decisions are made at junctions
+        boolean atJunction = navGraph == null || navGraph.isDecisionPoint(getGridX(), getGridY());
+        
         // **FIX: Only change direction when not moving or at longer intervals**
-        boolean canChangeDirection = (!isMoving && moveProgress == 0) || 
-                                   directionTimer >= getCurrentModeUpdateFrequency() * 2; // Double the frequency
+        boolean arrived = !isMoving && moveProgress == 0;
+        int rethinkTicks = getCurrentModeUpdateFrequency() * 2; // Double the frequency
+        boolean rethinkDue = atJunction && directionTimer >= rethinkTicks;
+        boolean canChangeDirection = arrived || (rethinkDue && directionTimer >= rethinkTicks * interval);
+        // A deferred rethink stays due for several ticks; count it once
+        if (rethinkDue && !canChangeDirection) {
+            if (!rethinkDeferred) {
+                deferredDecisions++;
+                rethinkDeferred = true;
+            }
+        } else {
+            rethinkDeferred = false;
+        }
         
         if (canChangeDirection) {
             directionTimer = 0;
-            Direction newDirection = calculateBestDirection(player, walls, tileSize);
+            Direction newDirection = atJunction ? null : navGraph.corridorDirection(getGridX(), getGridY(), direction);
+            if (newDirection == null) {
+                newDirection = calculateBestDirection(player, grid, tileSize);
+            }
             
             if (newDirection != null) {
                 boolean success = startMovement(newDirection);
@@ -242,7 +320,7 @@ public class Ghost extends Entity {
                 } else {
                     stuckCounter++;
                     if (stuckCounter > 3) { // Increased threshold
-                        Direction emergencyDir = getEmergencyDirection(walls, tileSize);
+                        Direction emergencyDir = getEmergencyDirection(grid, tileSize);
                         if (emergencyDir != null) {
                             startMovement(emergencyDir);
                             stuckCounter = 0;
@@ -283,31 +361,46 @@ public class Ghost extends Entity {
             this.moveProgress = 0;
             this.pendingDirection = null;
         }
+        
+        long spent = System.nanoTime() - started;
+        averageAiNanos += (spent - averageAiNanos) / AI_COST_WINDOW;
+        maxAiNanos = Math.max(maxAiNanos, spent);
+        if (levelOfDetail.isOverBudget(averageAiNanos)) {
+            overBudgetTicks++;
+        }
     }
     
     private void setUniqueTargets(int spawnX, int spawnY) {
         // Set scatter target và patrol center khác nhau cho mỗi ghost
-        int tileX = spawnX / 32;
-        int tileY = spawnY / 32;
-        
-        if (tileX < 9) { // Left side ghosts
-            if (tileY < 10) {
+        int tileX = spawnX / tileSize;
+        int tileY = spawnY / tileSize;
+        
+        // Corners and patrol areas scale with the map (19x21 gives corners at 18/20, patrol at 4/14 and 5/15)
+        int lastColumn = columnCount - 1;
+        int lastRow = rowCount - 1;
+        int patrolLeft = columnCount / 4;
+        int patrolRight = lastColumn - columnCount / 4;
+        int patrolTop = rowCount / 4;
+        int patrolBottom = lastRow - rowCount / 4;
+        
+        if (tileX < columnCount / 2) { // Left side ghosts
+            if (tileY < rowCount / 2) {
                 scatterTargetX = 0; scatterTargetY = 0; // Top-left
-                patrolCenterX = 4; patrolCenterY = 5;
+                patrolCenterX = patrolLeft; patrolCenterY = patrolTop;
                 chaseAggressiveness = 70; // Red ghost - most aggressive
             } else {
-                scatterTargetX = 0; scatterTargetY = 20; // Bottom-left
-                patrolCenterX = 4; patrolCenterY = 15;
+                scatterTargetX = 0; scatterTargetY = lastRow; // Bottom-left
+                patrolCenterX = patrolLeft; patrolCenterY = patrolBottom;
                 chaseAggressiveness = 40; // Pink ghost - ambush style
             }
         } else { // Right side ghosts
-            if (tileY < 10) {
-                scatterTargetX = 18; scatterTargetY = 0; // Top-right
-                patrolCenterX = 14; patrolCenterY = 5;
+            if (tileY < rowCount / 2) {
+                scatterTargetX = lastColumn; scatterTargetY = 0; // Top-right
+                patrolCenterX = patrolRight; patrolCenterY = patrolTop;
                 chaseAggressiveness = 60; // Blue ghost - smart chaser
             } else {
-                scatterTargetX = 18; scatterTargetY = 20; // Bottom-right
-                patrolCenterX = 14; patrolCenterY = 15;
+                scatterTargetX = lastColumn; scatterTargetY = lastRow; // Bottom-right
+                patrolCenterX = patrolRight; patrolCenterY = patrolBottom;
                 chaseAggressiveness = 30; // Orange ghost - random/patrol
             }
         }
@@ -345,58 +438,98 @@ public class Ghost extends Entity {
         }
     }
     
-    private Direction calculateBestDirection(Player player, java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction calculateBestDirection(Player player, TileGrid grid, int tileSize) {
+        if (lodLevel == AiLevelOfDetail.FAR) {
+            // Out of the player's way: head for the target greedily, no path search or look-ahead
+            cheapDecisions++;
+            switch (currentMode) {
+                case CHASE:
+                    return getAdvancedChaseDirection(player, grid, tileSize);
+                case FRIGHTENED:
+                    return getRandomValidDirection(grid, tileSize);
+                case PATROL:
+                    return getDirectionToTarget(patrolCenterX, patrolCenterY, grid, tileSize);
+                default:
+                    return getDirectionToTarget(scatterTargetX, scatterTargetY, grid, tileSize);
+            }
+        }
+        
+        fullDecisions++;
         switch (currentMode) {
             case CHASE:
-                return getAdvancedChaseDirection(player, walls, tileSize);
+                return getAdvancedChaseDirection(player, grid, tileSize);
             case SCATTER:
-                return getScatterDirection(walls, tileSize);
+                return getScatterDirection(grid, tileSize);
             case FRIGHTENED:
-                return getFrightenedDirection(player, walls, tileSize);
+                return getFrightenedDirection(player, grid, tileSize);
             case PATROL:
-                return getPatrolDirection(walls, tileSize);
+                return getPatrolDirection(grid, tileSize);
             default:
-                return getScatterDirection(walls, tileSize);
+                return getScatterDirection(grid, tileSize);
         }
     }
     
-    private Direction getAdvancedChaseDirection(Player player, java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction getAdvancedChaseDirection(Player player, TileGrid grid, int tileSize) {
         int currentTileX = x / tileSize;
         int currentTileY = y / tileSize;
+        
+        // Shared BFS field from the player's tile gives a real shortest path around walls
+        if (playerDistance != null) {
+            Direction step = playerDistance.stepToward(currentTileX, currentTileY);
+            if (step != null && isValidDirection(step, grid, tileSize)) {
+                return step;
+            }
+        }
+        
         int playerTileX = player.getX() / tileSize;
         int playerTileY = player.getY() / tileSize;
         
-        return getDirectionToTarget(playerTileX, playerTileY, walls, tileSize);
+        return getDirectionToTarget(playerTileX, playerTileY, grid, tileSize);
     }
     
-    private Direction getScatterDirection(java.util.HashSet<Wall> walls, int tileSize) {
-        return getDirectionToTarget(scatterTargetX, scatterTargetY, walls, tileSize);
+    private Direction getScatterDirection(TileGrid grid, int tileSize) {
+        return getPathDirection(scatterTargetX, scatterTargetY, grid, tileSize);
     }
     
-    private Direction getFrightenedDirection(Player player, java.util.HashSet<Wall> walls, int tileSize) {
-        Direction bestEscape = getSmartEscapeDirection(player, walls, tileSize);
+    private Direction getFrightenedDirection(Player player, TileGrid grid, int tileSize) {
+        Direction bestEscape = getSmartEscapeDirection(player, grid, tileSize);
         
         if (random.nextInt(100) < 20) {
-            return getRandomValidDirection(walls, tileSize);
+            return getRandomValidDirection(grid, tileSize);
         }
         
-        return bestEscape != null ? bestEscape : getRandomValidDirection(walls, tileSize);
+        return bestEscape != null ? bestEscape : getRandomValidDirection(grid, tileSize);
     }
     
-    private Direction getPatrolDirection(java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction getPatrolDirection(TileGrid grid, int tileSize) {
         int currentTileX = x / tileSize;
         int currentTileY = y / tileSize;
         
         int distanceFromCenter = Math.abs(currentTileX - patrolCenterX) + Math.abs(currentTileY - patrolCenterY);
         
         if (distanceFromCenter > 3) {
-            return getDirectionToTarget(patrolCenterX, patrolCenterY, walls, tileSize);
+            return getPathDirection(patrolCenterX, patrolCenterY, grid, tileSize);
         } else {
-            return getPatrolPattern(walls, tileSize);
+            return getPatrolPattern(grid, tileSize);
         }
     }
     
-    private Direction getDirectionToTarget(int targetX, int targetY, java.util.HashSet<Wall> walls, int tileSize) {
+    /**
+     * First step of the A* path to a fixed target, falling back to the
+     * greedy choice when there is no path (or no pathfinder yet).
+     */
+    private Direction getPathDirection(int targetX, int targetY, TileGrid grid, int tileSize) {
+        if (pathfinder != null) {
+            Direction step = pathfinder.nextStep(x / tileSize, y / tileSize, targetX, targetY);
+            if (step != null && isValidDirection(step, grid, tileSize)) {
+                return step;
+            }
+        }
+        
+        return getDirectionToTarget(targetX, targetY, grid, tileSize);
+    }
+    
+    private Direction getDirectionToTarget(int targetX, int targetY, TileGrid grid, int tileSize) {
         int currentTileX = x / tileSize;
         int currentTileY = y / tileSize;
         
@@ -410,7 +543,7 @@ public class Ghost extends Entity {
             // In CHASE mode, allow reverse; in other modes, avoid it
             if (currentMode != GhostMode.CHASE && dir == opposite) continue;
             
-            if (isValidDirection(dir, walls, tileSize)) {
+            if (isValidDirection(dir, grid, tileSize)) {
                 int newX = currentTileX;
                 int newY = currentTileY;
                 
@@ -436,19 +569,19 @@ public class Ghost extends Entity {
         }
         
         // If no forward direction is valid, allow reversing
-        if (bestDirection == null && isValidDirection(opposite, walls, tileSize)) {
+        if (bestDirection == null && isValidDirection(opposite, grid, tileSize)) {
             bestDirection = opposite;
         }
         
         return bestDirection;
     }
     
-    private Direction getPatrolPattern(java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction getPatrolPattern(TileGrid grid, int tileSize) {
         Direction[] preferredOrder = {Direction.RIGHT, Direction.DOWN, Direction.LEFT, Direction.UP};
         Direction opposite = getOppositeDirection(direction);
         
         for (Direction dir : preferredOrder) {
-            if (dir != opposite && dir != lastDirection && isValidDirection(dir, walls, tileSize)) {
+            if (dir != opposite && dir != lastDirection && isValidDirection(dir, grid, tileSize)) {
                 if (random.nextInt(100) < 80) {
                     return dir;
                 }
@@ -456,15 +589,15 @@ public class Ghost extends Entity {
         }
         
         for (Direction dir : preferredOrder) {
-            if (dir != opposite && isValidDirection(dir, walls, tileSize)) {
+            if (dir != opposite && isValidDirection(dir, grid, tileSize)) {
                 return dir;
             }
         }
         
-        return getRandomValidDirection(walls, tileSize);
+        return getRandomValidDirection(grid, tileSize);
     }
     
-    private Direction getSmartEscapeDirection(Player player, java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction getSmartEscapeDirection(Player player, TileGrid grid, int tileSize) {
         Direction bestEscape = null;
         int maxDistance = 0;
         Direction opposite = getOppositeDirection(direction);
@@ -474,7 +607,7 @@ public class Ghost extends Entity {
         for (Direction dir : directions) {
             if (dir == opposite) continue;
             
-            if (isValidDirection(dir, walls, tileSize)) {
+            if (isValidDirection(dir, grid, tileSize)) {
                 int newX = x;
                 int newY = y;
                 
@@ -499,7 +632,7 @@ public class Ghost extends Entity {
         return bestEscape;
     }
     
-    private Direction getRandomValidDirection(java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction getRandomValidDirection(TileGrid grid, int tileSize) {
         Direction[] directions = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
         Direction opposite = getOppositeDirection(direction);
         
@@ -513,21 +646,21 @@ public class Ghost extends Entity {
         
         // Try non-opposite, non-last directions first
         for (Direction dir : directions) {
-            if (dir != opposite && dir != lastDirection && isValidDirection(dir, walls, tileSize)) {
+            if (dir != opposite && dir != lastDirection && isValidDirection(dir, grid, tileSize)) {
                 return dir;
             }
         }
         
         // Try non-opposite directions
         for (Direction dir : directions) {
-            if (dir != opposite && isValidDirection(dir, walls, tileSize)) {
+            if (dir != opposite && isValidDirection(dir, grid, tileSize)) {
                 return dir;
             }
         }
         
         // Try any valid direction
         for (Direction dir : directions) {
-            if (isValidDirection(dir, walls, tileSize)) {
+            if (isValidDirection(dir, grid, tileSize)) {
                 return dir;
             }
         }
@@ -535,11 +668,11 @@ public class Ghost extends Entity {
         return direction;
     }
     
-    private Direction getEmergencyDirection(java.util.HashSet<Wall> walls, int tileSize) {
+    private Direction getEmergencyDirection(TileGrid grid, int tileSize) {
         Direction[] directions = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
         
         for (Direction dir : directions) {
-            if (isValidDirection(dir, walls, tileSize)) {
+            if (isValidDirection(dir, grid, tileSize)) {
                 return dir;
             }
         }
@@ -550,7 +683,7 @@ public class Ghost extends Entity {
     /**
      * **UPDATED: Grid-based collision detection**
      */
-    private boolean isValidDirection(Direction dir, java.util.HashSet<Wall> walls, int tileSize) {
+    private boolean isValidDirection(Direction dir, TileGrid grid, int tileSize) {
         if (dir == null) return false;
         
         // Calculate next grid position
@@ -573,26 +706,11 @@ public class Ghost extends Entity {
         
         // Handle tunnels
         if (nextGridX < 0 || nextGridX >= columnCount) {
-            // Allow tunnel only in middle rows
-            return nextGridY >= 9 && nextGridY <= 11;
+            return grid == null || grid.isPortalRow(nextGridY);
         }
         
         // Check for wall collision at exact grid position
-        int pixelX = nextGridX * tileSize;
-        int pixelY = nextGridY * tileSize;
-        
-        java.awt.Rectangle nextBounds = new java.awt.Rectangle(
-            pixelX + 1, pixelY + 1, 
-            tileSize - 2, tileSize - 2
-        );
-        
-        for (Wall wall : walls) {
-            if (nextBounds.intersects(wall.getBounds())) {
-                return false;
-            }
-        }
-        
-        return true;
+        return grid == null || !grid.isWall(nextGridX, nextGridY);
     }
     
     private Direction getOppositeDirection(Direction dir) {
@@ -617,13 +735,6 @@ public class Ghost extends Entity {
     
     public void setScared(boolean scared) {
         this.isScared = scared;
-        
-        if (scared && scaredImage != null) {
-            this.image = scaredImage;
-        } else {
-            this.image = normalImage;
-        }
-        
         this.directionTimer = 0;
     }
     
@@ -631,8 +742,8 @@ public class Ghost extends Entity {
         return isScared;
     }
     
-    public void setScaredImage(Image img) {
-        this.scaredImage = img;
+    public GhostType getType() {
+        return type;
     }
     
     public GhostMode getCurrentMode() {
@@ -672,9 +783,38 @@ public class Ghost extends Entity {
         }
     }
     
-    // Constants cho board size
-    private static final int columnCount = 19;
-    private static final int rowCount = 21;
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putLong(random.getState());
+        buffer.put((byte) ((isScared ? 1 : 0) | (isMoving ? 2 : 0)));
+        buffer.putInt(targetX).putInt(targetY).putInt(moveProgress);
+        buffer.put((byte) currentMode.ordinal());
+        buffer.putInt(modeTimer).putInt(directionTimer).putInt(aiUpdateCounter).putInt(stuckCounter);
+        putDirection(buffer, lastPlayerDirection);
+        putDirection(buffer, lastDirection);
+        putDirection(buffer, pendingDirection);
+    }
+    
+    @Override
+    public void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        random.setState(buffer.getLong());
+        byte flags = buffer.get();
+        isScared = (flags & 1) != 0;
+        isMoving = (flags & 2) != 0;
+        targetX = buffer.getInt();
+        targetY = buffer.getInt();
+        moveProgress = buffer.getInt();
+        currentMode = GhostMode.values()[buffer.get()];
+        modeTimer = buffer.getInt();
+        directionTimer = buffer.getInt();
+        aiUpdateCounter = buffer.getInt();
+        stuckCounter = buffer.getInt();
+        lastPlayerDirection = getDirection(buffer);
+        lastDirection = getDirection(buffer);
+        pendingDirection = getDirection(buffer);
+    }
     
     // **NEW: Grid movement getters for debugging**
     public boolean isMoving() {
@@ -685,6 +825,38 @@ public class Ghost extends Entity {
         return moveProgress;
     }
     
+    public int getLodLevel() {
+        return lodLevel;
+    }
+    
+    // AI work done so far: full and cheap decisions, and re-thinks put off by the level of detail
+    public long getFullDecisions() {
+        return fullDecisions;
+    }
+    
+    public long getCheapDecisions() {
+        return cheapDecisions;
+    }
+    
+    /** Rethinks pushed back by the level of detail, each counted once however long it waited. */
+    public long getDeferredDecisions() {
+        return deferredDecisions;
+    }
+    
+    /** Wall-clock time the AI took per tick, averaged over the last few dozen ticks. */
+    public long getAverageAiNanos() {
+        return averageAiNanos;
+    }
+    
+    public long getMaxAiNanos() {
+        return maxAiNanos;
+    }
+    
+    /** Ticks on which the average AI time was over the level of detail's tick budget. */
+    public long getOverBudgetTicks() {
+        return overBudgetTicks;
+    }
+    
     public int getGridX() {
         return x / tileSize;
     }
@@ -695,7 +867,7 @@ public class Ghost extends Entity {
     
     // Backward compatibility methods
     public void changeDirectionRandomly(int tileSize) {
-        Direction newDir = getRandomValidDirection(new java.util.HashSet<>(), tileSize);
+        Direction newDir = getRandomValidDirection(null, tileSize);
         if (newDir != null) {
             startMovement(newDir);
         }
@@ -0,0 +1,404 @@
+package entities;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import utils.AiLevelOfDetail;
+import utils.DistanceField;
+import utils.GameRandom;
+import utils.TileGrid;
+
+/**
+ * Swarm mode: hundreds of simple ghosts stored as parallel primitive arrays
+ * (struct of arrays) instead of one Ghost object each, and updated by tight
+ * loops over those arrays. Swarm ghosts move tile to tile, decide only when
+ * they are centred on a tile, and use the shared distance field to the
+ * player; they alternate between wandering (scatter) and chasing on a
+ * staggered timer, and flee while scared. Ghosts far from the player
+ * (see AiLevelOfDetail) skip the distance field and just keep going.
+ */
+public class GhostSwarm {
+    public static final byte SCATTER = 0;
+    public static final byte CHASE = 1;
+    public static final byte FRIGHTENED = 2;
+
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+    private static final int SPEED = 2;         // Pixels per tick, divides the tile size
+    private static final int SCARED_SPEED = 1;
+    private static final int SCATTER_TICKS = 420;
+    private static final int CYCLE_TICKS = 1800;
+    // Chance in 16 that a chasing ghost picks a random way, so the swarm spreads out
+    private static final int CHASE_NOISE = 2;
+    // Chasers treat a tile holding this many ghosts as this many tiles longer
+    private static final int CROWDED = 4;
+    private static final int CROWD_DETOUR = 2;
+    // Below this many ghosts a parallel decision phase costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final int GHOSTS_PER_TASK = 256;
+
+    private final int tileSize;
+    private final int columns;
+    private final int boardWidth;
+    private final int[] spawnTiles;
+    // Neighbouring walkable tile per tile and Direction ordinal, -1 for a wall
+    private final int[] neighbors;
+    private final int count;
+
+    // Ghost state, one slot per ghost
+    private final int[] x;
+    private final int[] y;
+    private final int[] previousX;
+    private final int[] previousY;
+    private final byte[] direction;
+    private final byte[] mode;
+    private final boolean[] scared;
+    private final int[] modeTimer;
+    private final long[] randomState;
+
+    // Ghosts per tile after the previous tick (read while deciding) and the one being counted
+    private int[] occupancy;
+    private int[] nextOccupancy;
+    private ForkJoinPool pool;
+    private AiLevelOfDetail levelOfDetail;
+    private final LongAdder fullDecisions = new LongAdder();
+    private final LongAdder cheapDecisions = new LongAdder();
+    private final LongAdder aiNanos = new LongAdder();
+
+    /**
+     * @param spawnTiles tile indices the ghosts start on, used in turn
+     * @param random each ghost's random stream is split from it
+     */
+    public GhostSwarm(TileGrid grid, int[] spawnTiles, int count, GameRandom random) {
+        if (spawnTiles.length == 0 && count > 0) {
+            throw new IllegalArgumentException("A swarm needs at least one spawn tile");
+        }
+        this.tileSize = grid.getTileSize();
+        this.columns = grid.getColumns();
+        this.boardWidth = columns * tileSize;
+        this.spawnTiles = spawnTiles.clone();
+        this.count = count;
+        this.levelOfDetail = AiLevelOfDetail.forGrid(grid);
+
+        int tiles = columns * grid.getRows();
+        neighbors = new int[tiles * 4];
+        for (int tile = 0; tile < tiles; tile++) {
+            int col = tile % columns;
+            int row = tile / columns;
+            for (int d = 0; d < 4; d++) {
+                int next = grid.tileIndex(col + DX[d], row + DY[d]);
+                boolean open = next >= 0 && grid.isWalkable(next % columns, next / columns);
+                neighbors[tile * 4 + d] = open ? next : -1;
+            }
+        }
+
+        x = new int[count];
+        y = new int[count];
+        previousX = new int[count];
+        previousY = new int[count];
+        direction = new byte[count];
+        mode = new byte[count];
+        scared = new boolean[count];
+        modeTimer = new int[count];
+        randomState = new long[count];
+        occupancy = new int[tiles];
+        nextOccupancy = new int[tiles];
+        for (int i = 0; i < count; i++) {
+            randomState[i] = random.split().nextLong();
+        }
+        reset();
+    }
+
+    /** Everyone back on the spawn tiles, not scared. */
+    public void reset() {
+        for (int i = 0; i < count; i++) {
+            respawn(i);
+            // Staggered so the swarm does not switch modes all at once
+            modeTimer[i] = nextInt(i, CYCLE_TICKS);
+        }
+        rebuildOccupancy();
+    }
+
+    /** Puts one ghost back on its spawn tile (after being eaten). */
+    public void respawn(int i) {
+        int tile = spawnTiles[i % spawnTiles.length];
+        x[i] = (tile % columns) * tileSize;
+        y[i] = (tile / columns) * tileSize;
+        previousX[i] = x[i];
+        previousY[i] = y[i];
+        direction[i] = (byte) nextInt(i, 4);
+        scared[i] = false;
+        mode[i] = SCATTER;
+    }
+
+    public void savePreviousPositions() {
+        System.arraycopy(x, 0, previousX, 0, count);
+        System.arraycopy(y, 0, previousY, 0, count);
+    }
+
+    /**
+     * Moves every ghost one tick in two phases. Deciding reads only frozen
+     * state: the distance field to the player, each ghost's own slots and
+     * the occupancy of the previous tick, so the ghosts can decide in any
+     * order or in parallel with the same result. Committing then moves them
+     * one after another and counts the new occupancy.
+     */
+    public void update(DistanceField playerDistance) {
+        if (pool != null && count >= PARALLEL_THRESHOLD) {
+            pool.invoke(new DecideTask(playerDistance, 0, count));
+        } else {
+            decideRange(playerDistance, 0, count);
+        }
+        commit();
+    }
+
+    // Decision phase; writes only the slots of ghosts from..to
+    private void decideRange(DistanceField playerDistance, int from, int to) {
+        long started = System.nanoTime();
+        int cheap = 0;
+        int decided = 0;
+        for (int i = from; i < to; i++) {
+            int timer = modeTimer[i] + 1;
+            modeTimer[i] = timer == CYCLE_TICKS ? 0 : timer;
+            mode[i] = scared[i] ? FRIGHTENED : timer < SCATTER_TICKS ? SCATTER : CHASE;
+
+            int gx = x[i];
+            int gy = y[i];
+            if (gx % tileSize == 0 && gy % tileSize == 0) {
+                int tile = (gy / tileSize) * columns + gx / tileSize;
+                int level = levelOfDetail.levelFor(playerDistance.getDistanceAt(tile));
+                if (level == AiLevelOfDetail.FAR) {
+                    direction[i] = (byte) decideCheaply(i, tile);
+                    cheap++;
+                } else {
+                    direction[i] = (byte) decide(i, tile, playerDistance, level == AiLevelOfDetail.NEAR);
+                }
+                decided++;
+            }
+        }
+        cheapDecisions.add(cheap);
+        fullDecisions.add(decided - cheap);
+        aiNanos.add(System.nanoTime() - started);
+    }
+
+    // Far from the player: keep going straight where possible, otherwise any way but back
+    private int decideCheaply(int i, int tile) {
+        int d = direction[i];
+        int base = tile * 4;
+        if (neighbors[base + d] >= 0) {
+            return d;
+        }
+        int options = 0;
+        int choices = 0;
+        for (int turn = 0; turn < 4; turn++) {
+            if (turn != (d ^ 1) && neighbors[base + turn] >= 0) {
+                options |= 1 << turn;
+                choices++;
+            }
+        }
+        if (choices == 0) return d ^ 1;
+        return choices == 1 ? Integer.numberOfTrailingZeros(options) : nthOption(options, nextInt(i, choices));
+    }
+
+    // Commit phase: moves everyone along their direction and fills the next occupancy
+    private void commit() {
+        int[] counting = nextOccupancy;
+        Arrays.fill(counting, 0);
+        for (int i = 0; i < count; i++) {
+            int gx = x[i];
+            int gy = y[i];
+            int d = direction[i];
+            boolean blocked = gx % tileSize == 0 && gy % tileSize == 0
+                    && neighbors[((gy / tileSize) * columns + gx / tileSize) * 4 + d] < 0;
+            if (!blocked) {
+                // Off the normal speed grid after being scared, creep back onto it
+                boolean slow = scared[i] || gx % SPEED != 0 || gy % SPEED != 0;
+                int speed = slow ? SCARED_SPEED : SPEED;
+                gx += DX[d] * speed;
+                gy += DY[d] * speed;
+
+                // Tunnels: leave on one side, come back on the other
+                if (gx < 0) {
+                    gx += boardWidth;
+                } else if (gx >= boardWidth) {
+                    gx -= boardWidth;
+                }
+                x[i] = gx;
+                y[i] = gy;
+            }
+            counting[tileOf(gx, gy)]++;
+        }
+        nextOccupancy = occupancy;
+        occupancy = counting;
+    }
+
+    // Tile under a ghost's centre
+    private int tileOf(int gx, int gy) {
+        int half = tileSize / 2;
+        return ((gy + half) / tileSize) * columns + ((gx + half) / tileSize) % columns;
+    }
+
+    private void rebuildOccupancy() {
+        Arrays.fill(occupancy, 0);
+        for (int i = 0; i < count; i++) {
+            occupancy[tileOf(x[i], y[i])]++;
+        }
+    }
+
+    private final class DecideTask extends RecursiveAction {
+        private final DistanceField playerDistance;
+        private final int from;
+        private final int to;
+
+        DecideTask(DistanceField playerDistance, int from, int to) {
+            this.playerDistance = playerDistance;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GHOSTS_PER_TASK) {
+                decideRange(playerDistance, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecideTask(playerDistance, from, mid), new DecideTask(playerDistance, mid, to));
+        }
+    }
+
+    // Direction ordinal to take from a tile the ghost is centred on
+    private int decide(int i, int tile, DistanceField playerDistance, boolean near) {
+        int reverse = direction[i] ^ 1;
+        int base = tile * 4;
+        int options = 0;
+        int choices = 0;
+        for (int d = 0; d < 4; d++) {
+            if (d != reverse && neighbors[base + d] >= 0) {
+                options |= 1 << d;
+                choices++;
+            }
+        }
+        if (choices == 0) {
+            // Dead end: turn around
+            return reverse;
+        }
+        if (choices == 1) {
+            return Integer.numberOfTrailingZeros(options);
+        }
+
+        byte current = mode[i];
+        boolean useField = current == CHASE ? nextInt(i, 16) >= CHASE_NOISE
+                : current == FRIGHTENED && nextInt(i, 4) != 0;
+        if (!useField) {
+            return nthOption(options, nextInt(i, choices));
+        }
+
+        // Chase: closest to the player, detouring round crowded tiles near them; frightened: furthest away
+        int best = -1;
+        int bestDistance = 0;
+        for (int d = 0; d < 4; d++) {
+            if ((options & (1 << d)) == 0) continue;
+            int next = neighbors[base + d];
+            int distance = playerDistance.getDistanceAt(next);
+            if (distance == DistanceField.UNREACHABLE) continue;
+            if (near && current == CHASE && occupancy[next] >= CROWDED) {
+                distance += CROWD_DETOUR;
+            }
+            if (best < 0 || (current == CHASE ? distance < bestDistance : distance > bestDistance)) {
+                best = d;
+                bestDistance = distance;
+            }
+        }
+        return best >= 0 ? best : nthOption(options, nextInt(i, choices));
+    }
+
+    private static int nthOption(int options, int n) {
+        for (int k = 0; k < n; k++) {
+            options &= options - 1;
+        }
+        return Integer.numberOfTrailingZeros(options);
+    }
+
+    // Per-ghost SplitMix64 stream kept in the state array
+    private int nextInt(int i, int bound) {
+        long bits = GameRandom.mix64(randomState[i] += GameRandom.GOLDEN_GAMMA);
+        return (int) ((bits >>> 33) % bound);
+    }
+
+    /**
+     * First ghost overlapping the given box, searching from index from.
+     * @return its index, or -1 if none
+     */
+    public int findCollision(int boxX, int boxY, int size, int from) {
+        for (int i = from; i < count; i++) {
+            if (Math.abs(x[i] - boxX) < size && Math.abs(y[i] - boxY) < size) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** A power pellet was eaten: every ghost turns scared and reverses. */
+    public void frightenAll() {
+        for (int i = 0; i < count; i++) {
+            direction[i] ^= 1;
+            scared[i] = true;
+        }
+    }
+
+    public void setAllScared(boolean value) {
+        Arrays.fill(scared, value);
+    }
+
+    public void writeState(ByteBuffer buffer) {
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(x[i]).putInt(y[i]).putInt(previousX[i]).putInt(previousY[i]);
+            buffer.put(direction[i]).put(mode[i]).put((byte) (scared[i] ? 1 : 0));
+            buffer.putInt(modeTimer[i]).putLong(randomState[i]);
+        }
+    }
+
+    public void readState(ByteBuffer buffer) {
+        for (int i = 0; i < count; i++) {
+            x[i] = buffer.getInt();
+            y[i] = buffer.getInt();
+            previousX[i] = buffer.getInt();
+            previousY[i] = buffer.getInt();
+            direction[i] = buffer.get();
+            mode[i] = buffer.get();
+            scared[i] = buffer.get() != 0;
+            modeTimer[i] = buffer.getInt();
+            randomState[i] = buffer.getLong();
+        }
+        rebuildOccupancy();
+    }
+
+    /**
+     * Runs the decision phase of large swarms on this pool; null keeps it
+     * on the calling thread. The outcome is the same either way.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void setLevelOfDetail(AiLevelOfDetail levelOfDetail) {
+        this.levelOfDetail = levelOfDetail;
+    }
+
+    // Getters
+    public int size() { return count; }
+    public int getX(int i) { return x[i]; }
+    public int getY(int i) { return y[i]; }
+    public int getPreviousX(int i) { return previousX[i]; }
+    public int getPreviousY(int i) { return previousY[i]; }
+    public int getDirection(int i) { return direction[i]; }
+    public byte getMode(int i) { return mode[i]; }
+    public boolean isScared(int i) { return scared[i]; }
+    public int getTileSize() { return tileSize; }
+    public long getFullDecisions() { return fullDecisions.sum(); }
+    public long getCheapDecisions() { return cheapDecisions.sum(); }
+    /** Wall-clock time spent deciding, summed over all ghosts and threads. */
+    public long getAiNanos() { return aiNanos.sum(); }
+}
@@ -0,0 +1,252 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A* over the tile grid that does not allocate per search.
+ * Open-set bookkeeping is an indexed binary heap of tile indices, and the
+ * score arrays are reused between searches using a generation stamp instead
+ * of being cleared.
+ *
+ * Results are memoised as first steps keyed by (source tile, target tile).
+ * Every tile along a found path gets an entry, so a ghost walking that path
+ * hits the cache on each following tile. The cache is only dropped when the
+ * map changes.
+ */
+public class AStarPathfinder implements Pathfinder {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Indexed by Direction.ordinal(): UP, DOWN, LEFT, RIGHT
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    private static final int CACHE_SIZE = 4096;
+    private static final byte NO_PATH = 4;
+
+    private final TileGrid grid;
+    private final int columns;
+    private final int rows;
+    private final boolean hasPortals;
+
+    // Per-tile search state, valid only where stamp == generation
+    private final int[] stamp;
+    private final int[] gScore;
+    private final int[] fScore;
+    private final int[] parent;
+    private final boolean[] closed;
+    private int generation = 0;
+
+    // Indexed binary min-heap on fScore
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize = 0;
+
+    // Direct-mapped first-step cache
+    private final long[] cacheKeys = new long[CACHE_SIZE];
+    private final byte[] cacheSteps = new byte[CACHE_SIZE];
+
+    private int searches = 0;
+    private int cacheHits = 0;
+
+    public AStarPathfinder(TileGrid grid) {
+        this.grid = grid;
+        this.columns = grid.getColumns();
+        this.rows = grid.getRows();
+
+        boolean portals = false;
+        for (int r = 0; r < rows && !portals; r++) {
+            portals = grid.isPortalRow(r);
+        }
+        this.hasPortals = portals;
+
+        int tiles = columns * rows;
+        this.stamp = new int[tiles];
+        this.gScore = new int[tiles];
+        this.fScore = new int[tiles];
+        this.parent = new int[tiles];
+        this.closed = new boolean[tiles];
+        this.heap = new int[tiles];
+        this.heapIndex = new int[tiles];
+        invalidate();
+    }
+
+    @Override
+    public void invalidate() {
+        Arrays.fill(cacheKeys, -1L);
+    }
+
+    /**
+     * A target inside a wall is moved to the nearest open tile.
+     */
+    @Override
+    public Direction nextStep(int fromCol, int fromRow, int toCol, int toRow) {
+        int start = grid.tileIndex(fromCol, fromRow);
+        int goal = grid.nearestWalkableTile(toCol, toRow);
+        if (start < 0 || goal < 0 || start == goal) return null;
+        if (!grid.isWalkable(start % columns, start / columns)) return null;
+
+        long key = (long) start * (columns * rows) + goal;
+        int slot = (int) ((key ^ (key >>> 29)) & (CACHE_SIZE - 1));
+        if (cacheKeys[slot] == key) {
+            cacheHits++;
+            return toDirection(cacheSteps[slot]);
+        }
+
+        if (!search(start, goal)) {
+            cacheKeys[slot] = key;
+            cacheSteps[slot] = NO_PATH;
+            return null;
+        }
+
+        // Walk back from the goal and remember the step out of every tile
+        byte step = NO_PATH;
+        for (int tile = goal; tile != start; tile = parent[tile]) {
+            int from = parent[tile];
+            step = (byte) grid.stepDirection(from, tile).ordinal();
+            store((long) from * (columns * rows) + goal, step);
+        }
+        return toDirection(step);
+    }
+
+    private boolean search(int start, int goal) {
+        searches++;
+        nextGeneration();
+        heapSize = 0;
+
+        int goalCol = goal % columns;
+        int goalRow = goal / columns;
+
+        touch(start);
+        gScore[start] = 0;
+        fScore[start] = heuristic(start, goalCol, goalRow);
+        push(start);
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (current == goal) {
+                return true;
+            }
+            closed[current] = true;
+
+            int c = current % columns;
+            int r = current / columns;
+            int nextG = gScore[current] + 1;
+
+            for (int d = 0; d < 4; d++) {
+                int neighbor = grid.tileIndex(c + DX[d], r + DY[d]);
+                if (neighbor < 0 || !grid.isWalkable(neighbor % columns, neighbor / columns)) continue;
+
+                if (stamp[neighbor] != generation) {
+                    touch(neighbor);
+                } else if (closed[neighbor] || nextG >= gScore[neighbor]) {
+                    continue;
+                }
+
+                gScore[neighbor] = nextG;
+                fScore[neighbor] = nextG + heuristic(neighbor, goalCol, goalRow);
+                parent[neighbor] = current;
+                if (heapIndex[neighbor] < 0) {
+                    push(neighbor);
+                } else {
+                    siftUp(heapIndex[neighbor]);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void touch(int tile) {
+        stamp[tile] = generation;
+        gScore[tile] = Integer.MAX_VALUE;
+        closed[tile] = false;
+        heapIndex[tile] = -1;
+    }
+
+    private int heuristic(int tile, int goalCol, int goalRow) {
+        int dx = Math.abs(tile % columns - goalCol);
+        if (hasPortals) {
+            dx = Math.min(dx, columns - dx);
+        }
+        return dx + Math.abs(tile / columns - goalRow);
+    }
+
+    // Heap operations
+
+    private void push(int tile) {
+        heap[heapSize] = tile;
+        heapIndex[tile] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        int tile = heap[index];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parentTile = heap[parentIndex];
+            if (!less(tile, parentTile)) break;
+            heap[index] = parentTile;
+            heapIndex[parentTile] = index;
+            index = parentIndex;
+        }
+        heap[index] = tile;
+        heapIndex[tile] = index;
+    }
+
+    private void siftDown(int index) {
+        int tile = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], tile)) break;
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = tile;
+        heapIndex[tile] = index;
+    }
+
+    // Lower f first; on ties prefer the node further along (higher g)
+    private boolean less(int a, int b) {
+        if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+        return gScore[a] > gScore[b];
+    }
+
+    // Helpers
+
+    private void store(long key, byte step) {
+        int slot = (int) ((key ^ (key >>> 29)) & (CACHE_SIZE - 1));
+        cacheKeys[slot] = key;
+        cacheSteps[slot] = step;
+    }
+
+    private Direction toDirection(byte step) {
+        return step == NO_PATH ? null : DIRECTIONS[step];
+    }
+
+    // Getters
+    public int getSearchCount() { return searches; }
+    public int getCacheHitCount() { return cacheHits; }
+}
@@ -0,0 +1,65 @@
+package utils;
+
+/**
+ * Level of detail for ghost AI, by path distance to the player.
+ * Ghosts near the player think at full rate with the full (pathfinding)
+ * decision; further away they re-think less often, and far away they use a
+ * cheaper decision. Decisions a ghost cannot avoid, such as picking a way
+ * when it arrives on a tile, are always made.
+ *
+ * Each ghost also has a tick budget for its AI. What a ghost actually spends
+ * is measured in wall-clock time, so it is tracked against the budget but
+ * never changes a decision: that would make replays and snapshot copies
+ * play differently from the original game.
+ */
+public class AiLevelOfDetail {
+    public static final int NEAR = 0;
+    public static final int MID = 1;
+    public static final int FAR = 2;
+
+    // Multiplier on how long a ghost waits before re-thinking, per level
+    private static final int[] DECISION_INTERVAL = {1, 2, 4};
+    public static final long DEFAULT_TICK_BUDGET_NANOS = 20_000;
+
+    private final int nearTiles;
+    private final int farTiles;
+    private long tickBudgetNanos = DEFAULT_TICK_BUDGET_NANOS;
+
+    /**
+     * @param nearTiles up to this many tiles from the player is NEAR
+     * @param farTiles beyond this many tiles (or unreachable) is FAR
+     */
+    public AiLevelOfDetail(int nearTiles, int farTiles) {
+        this.nearTiles = nearTiles;
+        this.farTiles = Math.max(nearTiles, farTiles);
+    }
+
+    /** Thresholds scaled to the maze, so a small maze is mostly NEAR and MID. */
+    public static AiLevelOfDetail forGrid(TileGrid grid) {
+        int span = grid.getColumns() + grid.getRows();
+        return new AiLevelOfDetail(Math.max(8, span / 5), Math.max(20, span / 2));
+    }
+
+    public int levelFor(int pathDistance) {
+        if (pathDistance <= nearTiles) return NEAR;
+        if (pathDistance <= farTiles) return MID;
+        return FAR;
+    }
+
+    public int intervalFor(int level) {
+        return DECISION_INTERVAL[level];
+    }
+
+    public boolean isOverBudget(long aiNanosPerTick) {
+        return aiNanosPerTick > tickBudgetNanos;
+    }
+
+    public void setTickBudgetNanos(long tickBudgetNanos) {
+        this.tickBudgetNanos = tickBudgetNanos;
+    }
+
+    // Getters
+    public int getNearTiles() { return nearTiles; }
+    public int getFarTiles() { return farTiles; }
+    public long getTickBudgetNanos() { return tickBudgetNanos; }
+}
@@ -0,0 +1,108 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of audio commands (small ints) from any number of
+ * game threads to one audio thread. offer() never blocks: when the ring is
+ * full it throws away the oldest command and counts it as dropped, since a
+ * sound that is already late matters less than the one just triggered.
+ *
+ * Each command is stamped with the time it was queued, so the audio thread
+ * can tell how long it waited. An entry packs a 31-bit microsecond stamp
+ * above the 32-bit command, leaving the sign bit clear, so no entry can be
+ * mistaken for EMPTY. The ring is the usual sequence-numbered bounded
+ * queue: a slot's sequence says whether it is free to write or ready to
+ * read for the current lap, and the head and tail are claimed with
+ * compare-and-set.
+ */
+public class AudioCommandQueue {
+    /** Returned by poll() when the queue is empty; real entries are never negative. */
+    public static final long EMPTY = Long.MIN_VALUE;
+    private static final long STAMP_MASK = 0x7FFFFFFFL;
+
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final long[] entries;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public AudioCommandQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.entries = new long[size];
+        this.sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /** Queues a command (non-negative), dropping the oldest one if the queue is full. */
+    public void offer(int command) {
+        long entry = (((System.nanoTime() / 1000) & STAMP_MASK) << 32) | (command & 0xFFFFFFFFL);
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long difference = sequence.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries[slot] = entry;
+                    sequence.lazySet(slot, position + 1);
+                    return;
+                }
+            } else if (difference < 0) {
+                // Full: make room at the head
+                if (poll() != EMPTY) {
+                    dropped.incrementAndGet();
+                }
+            }
+            // Otherwise another producer took the slot first; try the next one
+        }
+    }
+
+    /**
+     * The oldest entry, or EMPTY. Use command() and ageMicros() on the result.
+     * Normally called by the audio thread only; offer() also uses it to drop.
+     */
+    public long poll() {
+        while (true) {
+            long position = head.get();
+            int slot = (int) position & mask;
+            long difference = sequence.get(slot) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    long entry = entries[slot];
+                    sequence.lazySet(slot, position + mask + 1);
+                    return entry;
+                }
+            } else if (difference < 0) {
+                return EMPTY;
+            }
+        }
+    }
+
+    public static int command(long entry) {
+        return (int) entry;
+    }
+
+    /** How long an entry has been queued; the stamp wraps after about 35 minutes, far beyond any real wait. */
+    public static long ageMicros(long entry, long nowNanos) {
+        return ((nowNanos / 1000) - (entry >>> 32)) & STAMP_MASK;
+    }
+
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    // Getters
+    public int capacity() { return mask + 1; }
+    public long getDropped() { return dropped.get(); }
+}
@@ -0,0 +1,282 @@
+package utils;
+
+import javax.sound.sampled.*;
+import java.util.Arrays;
+
+/**
+ * Software mixer: every sound plays through one SourceDataLine instead of a
+ * Clip per effect. A dedicated thread mixes the active voices from decoded
+ * PCM (SoundBank) into short periods and writes them to the line, whose
+ * buffer is the ring between the mixer and the device. The line buffer size
+ * therefore bounds the delay from play() to audible output; it is set per
+ * machine, and getLastLatencyMillis() & co. report what it actually was.
+ *
+ * Voices are resampled to 44.1 kHz stereo with linear interpolation and
+ * each has its own gain. When all voices are busy the oldest is taken over.
+ * Streamed music (MusicPlayer) can be attached and is mixed in after them.
+ * mix() can also be called directly, without a line, e.g. to benchmark.
+ */
+public class AudioMixer {
+    public static final float SAMPLE_RATE = 44100f;
+    public static final int CHANNELS = 2;
+    public static final int MAX_VOICES = 16;
+    private static final int FRAME_BYTES = CHANNELS * 2;
+    private static final long ONE = 1L << 32; // positions are 32.32 fixed point source frames
+
+    private final AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    private final int bufferFrames;
+    private final int periodFrames;
+
+    // Voice table, guarded by this
+    private final short[][] voiceSamples = new short[MAX_VOICES][];
+    private final int[] voiceChannels = new int[MAX_VOICES];
+    private final int[] voiceFrames = new int[MAX_VOICES];
+    private final long[] voicePosition = new long[MAX_VOICES];
+    private final long[] voiceStep = new long[MAX_VOICES];
+    private final float[] voiceGain = new float[MAX_VOICES];
+    private final boolean[] voiceLoop = new boolean[MAX_VOICES];
+    private final long[] voiceStarted = new long[MAX_VOICES];
+    private final long[] voiceTriggerNanos = new long[MAX_VOICES];
+    private long startCounter = 0;
+
+    private final int[] accumulator;
+    private final byte[] period;
+    private SourceDataLine line;
+    private Thread thread;
+    private volatile boolean running = false;
+    private long framesWritten = 0;
+    private volatile MusicPlayer music;
+
+    // Trigger-to-output latency, in nanoseconds
+    private volatile long lastLatencyNanos = 0;
+    private volatile long maxLatencyNanos = 0;
+    private long latencyTotalNanos = 0;
+    private long latencySamples = 0;
+
+    /** @param bufferMillis size of the line buffer; the mixer writes half of it at a time */
+    public AudioMixer(int bufferMillis) {
+        this.bufferFrames = Math.max(256, (int) (SAMPLE_RATE * bufferMillis / 1000));
+        this.periodFrames = bufferFrames / 2;
+        this.accumulator = new int[periodFrames * CHANNELS];
+        this.period = new byte[periodFrames * FRAME_BYTES];
+    }
+
+    /**
+     * Opens the output line and starts the mixer thread.
+     * @return false if there is no audio device to open
+     */
+    public synchronized boolean start() {
+        if (running) return true;
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, bufferFrames * FRAME_BYTES);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("No audio line for the mixer: " + e.getMessage());
+            line = null;
+            return false;
+        }
+        line.start();
+        running = true;
+        thread = new Thread(this::run, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        return true;
+    }
+
+    public void stop() {
+        running = false;
+        Thread mixerThread = thread;
+        if (mixerThread != null) {
+            try {
+                mixerThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            thread = null;
+            if (line != null) {
+                line.stop();
+                line.close();
+                line = null;
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            mix(period, periodFrames);
+            // Blocks while the line buffer is full, which is what paces the mixer
+            line.write(period, 0, periodFrames * FRAME_BYTES);
+        }
+    }
+
+    /**
+     * Starts a voice.
+     * @return a handle for stop() and setGain(), or -1 if the sound is null
+     */
+    public synchronized long play(SoundBank.Sound sound, float gain, boolean loop) {
+        if (sound == null) return -1;
+
+        int voice = -1;
+        for (int i = 0; i < MAX_VOICES && voice < 0; i++) {
+            if (voiceSamples[i] == null) voice = i;
+        }
+        if (voice < 0) {
+            // Steal the oldest one-shot; music is only taken if everything loops
+            long oldest = Long.MAX_VALUE;
+            for (int i = 0; i < MAX_VOICES; i++) {
+                long age = voiceLoop[i] ? voiceStarted[i] + Long.MAX_VALUE / 2 : voiceStarted[i];
+                if (age < oldest) {
+                    oldest = age;
+                    voice = i;
+                }
+            }
+        }
+
+        AudioFormat source = sound.getFormat();
+        voiceSamples[voice] = sound.getSamples();
+        voiceChannels[voice] = source.getChannels();
+        voiceFrames[voice] = sound.getFrameCount();
+        voicePosition[voice] = 0;
+        voiceStep[voice] = (long) (source.getSampleRate() / SAMPLE_RATE * ONE);
+        voiceGain[voice] = gain;
+        voiceLoop[voice] = loop;
+        voiceStarted[voice] = ++startCounter;
+        voiceTriggerNanos[voice] = System.nanoTime();
+        return (startCounter << 8) | voice;
+    }
+
+    public synchronized void stop(long handle) {
+        int voice = owned(handle);
+        if (voice >= 0) {
+            voiceSamples[voice] = null;
+        }
+    }
+
+    public synchronized void setGain(long handle, float gain) {
+        int voice = owned(handle);
+        if (voice >= 0) {
+            voiceGain[voice] = gain;
+        }
+    }
+
+    // The voice a handle refers to, or -1 once it has finished or been stolen
+    private int owned(long handle) {
+        if (handle < 0) return -1;
+        int voice = (int) (handle & 0xFF);
+        return voiceSamples[voice] != null && voiceStarted[voice] == handle >>> 8 ? voice : -1;
+    }
+
+    /**
+     * Mixes the next frames of all active voices into out (16-bit stereo,
+     * little-endian). Any number of frames can be asked for; they are mixed
+     * a period at a time.
+     */
+    public synchronized void mix(byte[] out, int frames) {
+        for (int done = 0; done < frames; done += periodFrames) {
+            mixPeriod(out, done, Math.min(periodFrames, frames - done));
+        }
+    }
+
+    // Mixes up to one period, which is what the accumulator holds, into out from frame offset on
+    private void mixPeriod(byte[] out, int offset, int frames) {
+        Arrays.fill(accumulator, 0, frames * CHANNELS, 0);
+        long now = System.nanoTime();
+        long queuedFrames = line != null ? Math.max(0, framesWritten - line.getLongFramePosition()) : 0;
+
+        for (int v = 0; v < MAX_VOICES; v++) {
+            short[] samples = voiceSamples[v];
+            if (samples == null) continue;
+
+            if (voiceTriggerNanos[v] != 0) {
+                // The voice is heard once what is already queued in the line has played
+                recordLatency(now - voiceTriggerNanos[v] + (long) (queuedFrames * 1e9 / SAMPLE_RATE));
+                voiceTriggerNanos[v] = 0;
+            }
+
+            int channels = voiceChannels[v];
+            int length = voiceFrames[v];
+            long position = voicePosition[v];
+            long step = voiceStep[v];
+            int gain = (int) (voiceGain[v] * 256);
+            boolean loop = voiceLoop[v];
+
+            for (int f = 0; f < frames; f++) {
+                int index = (int) (position >>> 32);
+                if (index >= length) {
+                    if (!loop) {
+                        voiceSamples[v] = null;
+                        break;
+                    }
+                    position -= (long) length << 32;
+                    index -= length;
+                }
+                int next = index + 1 < length ? index + 1 : (loop ? 0 : index);
+                int fraction = (int) ((position >>> 16) & 0xFFFF);
+
+                int left = interpolate(samples[index * channels], samples[next * channels], fraction);
+                int right = channels == 1 ? left
+                        : interpolate(samples[index * channels + 1], samples[next * channels + 1], fraction);
+                accumulator[f * 2] += left * gain >> 8;
+                accumulator[f * 2 + 1] += right * gain >> 8;
+                position += step;
+            }
+            voicePosition[v] = position;
+        }
+
+        MusicPlayer stream = music;
+        if (stream != null) {
+            stream.mixInto(accumulator, frames);
+        }
+
+        toPcm(accumulator, out, offset, frames);
+        framesWritten += frames;
+    }
+
+    /** Clips mixed stereo samples to 16 bits, little-endian, into out from frame offset on. */
+    static void toPcm(int[] accumulator, byte[] out, int offset, int frames) {
+        int start = offset * FRAME_BYTES;
+        for (int i = 0; i < frames * CHANNELS; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+            out[start + i * 2] = (byte) sample;
+            out[start + i * 2 + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    private static int interpolate(int from, int to, int fraction) {
+        return from + ((to - from) * fraction >> 16);
+    }
+
+    private void recordLatency(long nanos) {
+        lastLatencyNanos = nanos;
+        if (nanos > maxLatencyNanos) maxLatencyNanos = nanos;
+        latencyTotalNanos += nanos;
+        latencySamples++;
+    }
+
+    public synchronized int getActiveVoices() {
+        int active = 0;
+        for (short[] samples : voiceSamples) {
+            if (samples != null) active++;
+        }
+        return active;
+    }
+
+    public synchronized double getAverageLatencyMillis() {
+        return latencySamples == 0 ? 0 : latencyTotalNanos / 1e6 / latencySamples;
+    }
+
+    /** Mixes a music player's stream into the output; null to detach it. */
+    public void setMusic(MusicPlayer music) {
+        this.music = music;
+    }
+
+    // Getters
+    public double getLastLatencyMillis() { return lastLatencyNanos / 1e6; }
+    public double getMaxLatencyMillis() { return maxLatencyNanos / 1e6; }
+    public double getBufferMillis() { return bufferFrames * 1000.0 / SAMPLE_RATE; }
+    public int getPeriodFrames() { return periodFrames; }
+    public boolean isRunning() { return running; }
+}
@@ -0,0 +1,107 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first distance field over the tile grid toward a single source
+ * tile (the player). It is only recomputed when the source changes tile,
+ * and every chasing ghost reads its next step from the same field.
+ */
+public class DistanceField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Indexed by Direction.ordinal(): UP, DOWN, LEFT, RIGHT
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    private final TileGrid grid;
+    private final int columns;
+    private final int rows;
+    private final int[] distance;
+    private final int[] queue;
+    private int sourceTile = -1;
+
+    public DistanceField(TileGrid grid) {
+        this.grid = grid;
+        this.columns = grid.getColumns();
+        this.rows = grid.getRows();
+        this.distance = new int[columns * rows];
+        this.queue = new int[columns * rows];
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    /**
+     * Moves the source to the given tile, running the BFS only if it changed.
+     * @return true if the field was recomputed
+     */
+    public boolean update(int col, int row) {
+        int tile = grid.tileIndex(col, row);
+        if (tile < 0 || tile == sourceTile || !grid.isWalkable(tile % columns, row)) {
+            return false;
+        }
+
+        sourceTile = tile;
+        Arrays.fill(distance, UNREACHABLE);
+        distance[tile] = 0;
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = tile;
+        while (head < tail) {
+            int current = queue[head++];
+            int c = current % columns;
+            int r = current / columns;
+            int next = distance[current] + 1;
+
+            for (int d = 0; d < 4; d++) {
+                int neighbor = grid.tileIndex(c + DX[d], r + DY[d]);
+                if (neighbor >= 0 && distance[neighbor] == UNREACHABLE
+                        && grid.isWalkable(neighbor % columns, neighbor / columns)) {
+                    distance[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Forgets the source; every tile is unreachable until the next update. */
+    public void clear() {
+        sourceTile = -1;
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    /** Distance by tile index, for loops that already work on indices. */
+    public int getDistanceAt(int tile) {
+        return distance[tile];
+    }
+
+    public int getDistance(int col, int row) {
+        int tile = grid.tileIndex(col, row);
+        return tile < 0 ? UNREACHABLE : distance[tile];
+    }
+
+    /**
+     * Direction of the neighbouring tile that is closest to the source,
+     * or null if the tile is unreachable or already on the source.
+     */
+    public Direction stepToward(int col, int row) {
+        int best = getDistance(col, row);
+        if (best == UNREACHABLE || best == 0) return null;
+
+        Direction bestDirection = null;
+        for (int d = 0; d < 4; d++) {
+            int neighborDistance = getDistance(col + DX[d], row + DY[d]);
+            if (neighborDistance < best) {
+                best = neighborDistance;
+                bestDirection = DIRECTIONS[d];
+            }
+        }
+        return bestDirection;
+    }
+
+    public int getSourceColumn() { return sourceTile < 0 ? -1 : sourceTile % columns; }
+    public int getSourceRow() { return sourceTile < 0 ? -1 : sourceTile / columns; }
+    public int getSourceTile() { return sourceTile; }
+}
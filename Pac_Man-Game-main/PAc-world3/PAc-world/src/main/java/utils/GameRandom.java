@@ -0,0 +1,56 @@
+package utils;
+
+/**
+ * Small splittable random source (SplitMix64) whose whole state is one long.
+ * Unlike java.util.SplittableRandom the state can be read and set again,
+ * so a snapshot of the game can capture exactly where every ghost's random
+ * stream was and continue it after a restore.
+ */
+public class GameRandom {
+    public static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    /** A new, independent stream; advances this one. */
+    public GameRandom split() {
+        return new GameRandom(mix64(nextSeed()) ^ GOLDEN_GAMMA);
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    /** Uniform value in [0, bound). */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        // Rejects the top of the range that would bias small values
+        int limit = Integer.MAX_VALUE - (Integer.MAX_VALUE % bound);
+        while (true) {
+            int bits = (int) (nextLong() >>> 33);
+            if (bits < limit) {
+                return bits % bound;
+            }
+        }
+    }
+
+    private long nextSeed() {
+        return state += GOLDEN_GAMMA;
+    }
+
+    /** The output function; also used directly by code keeping many states in an array. */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Getters and setters
+    public long getState() { return state; }
+    public void setState(long state) { this.state = state; }
+}
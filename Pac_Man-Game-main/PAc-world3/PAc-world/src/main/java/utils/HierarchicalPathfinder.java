@@ -0,0 +1,568 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical pathfinding (HPA*) for large mazes.
+ *
+ * The grid is cut into square clusters. Open tiles facing each other across
+ * a cluster border become entrance nodes, and at build time every pair of
+ * entrances inside a cluster is linked with its local BFS distance. A query
+ * only runs A* over this small abstract graph, then refines lazily: just the
+ * stretch inside the current cluster is searched at tile level, and the
+ * abstract route is kept per target so later steps toward the same target
+ * only need that local search.
+ */
+public class HierarchicalPathfinder implements Pathfinder {
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+    // Routes to this many distinct targets are kept at once (one per ghost is typical)
+    private static final int ROUTE_SLOTS = 8;
+
+    // Indexed by Direction.ordinal(): UP, DOWN, LEFT, RIGHT
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+    private static final int UNSEEN = -1;
+    // Border segments at least this long get an entrance at both ends
+    private static final int WIDE_ENTRANCE = 6;
+
+    private final TileGrid grid;
+    private final int columns;
+    private final int rows;
+    private final int clusterSize;
+    private final int clustersX;
+    private final int clustersY;
+    private final boolean hasPortals;
+
+    // Abstract graph, edges in compressed sparse row form
+    private int nodeCount = 0;
+    private int[] nodeTile;
+    private int[] nodeCluster;
+    private int[] clusterNodeStart;
+    private int[] clusterNodes;
+    private int[] edgeStart;
+    private int[] edgeTo;
+    private int[] edgeCost;
+
+    // Tile-level scratch for one cluster
+    private final int[] startDist;
+    private final int[] startParent;
+    private final int[] goalDist;
+    private final int[] goalParent;
+    private final int[] localQueue;
+
+    // Abstract search scratch; two extra slots for the start and goal
+    private int[] stamp;
+    private int[] gScore;
+    private int[] fScore;
+    private int[] parent;
+    private boolean[] closed;
+    private int[] heap;
+    private int[] heapIndex;
+    private int heapSize = 0;
+    private int generation = 0;
+
+    // Abstract routes kept for lazy refinement, replaced round-robin
+    private final int[] routeGoals = new int[ROUTE_SLOTS];
+    private final int[] routeLengths = new int[ROUTE_SLOTS];
+    private int[][] routes;
+    private int nextRouteSlot = 0;
+
+    private int abstractSearches = 0;
+    private int localRefinements = 0;
+
+    public HierarchicalPathfinder(TileGrid grid) {
+        this(grid, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HierarchicalPathfinder(TileGrid grid, int clusterSize) {
+        this.grid = grid;
+        this.columns = grid.getColumns();
+        this.rows = grid.getRows();
+        this.clusterSize = clusterSize;
+        this.clustersX = (columns + clusterSize - 1) / clusterSize;
+        this.clustersY = (rows + clusterSize - 1) / clusterSize;
+
+        boolean portals = false;
+        for (int r = 0; r < rows && !portals; r++) {
+            portals = grid.isPortalRow(r);
+        }
+        this.hasPortals = portals;
+
+        int local = clusterSize * clusterSize;
+        this.startDist = new int[local];
+        this.startParent = new int[local];
+        this.goalDist = new int[local];
+        this.goalParent = new int[local];
+        this.localQueue = new int[local];
+
+        build();
+    }
+
+    // Build
+
+    private void build() {
+        int[] nodeOfTile = new int[columns * rows];
+        Arrays.fill(nodeOfTile, -1);
+        IntBuffer tiles = new IntBuffer();
+        IntBuffer links = new IntBuffer();
+
+        // Entrances across vertical borders (left cluster | right cluster)
+        for (int cx = 1; cx < clustersX; cx++) {
+            int col = cx * clusterSize - 1;
+            for (int cy = 0; cy < clustersY; cy++) {
+                int firstRow = cy * clusterSize;
+                int lastRow = Math.min(rows, firstRow + clusterSize) - 1;
+                addEntrances(nodeOfTile, tiles, links, col, firstRow, lastRow, true);
+            }
+        }
+
+        // Entrances across horizontal borders (upper cluster / lower cluster)
+        for (int cy = 1; cy < clustersY; cy++) {
+            int row = cy * clusterSize - 1;
+            for (int cx = 0; cx < clustersX; cx++) {
+                int firstCol = cx * clusterSize;
+                int lastCol = Math.min(columns, firstCol + clusterSize) - 1;
+                addEntrances(nodeOfTile, tiles, links, row, firstCol, lastCol, false);
+            }
+        }
+
+        // Tunnels link the two edge tiles of a portal row
+        for (int r = 0; r < rows; r++) {
+            if (grid.isPortalRow(r)) {
+                int left = nodeFor(nodeOfTile, tiles, r * columns);
+                int right = nodeFor(nodeOfTile, tiles, r * columns + columns - 1);
+                links.add(left);
+                links.add(right);
+            }
+        }
+
+        nodeCount = tiles.size();
+        nodeTile = tiles.toArray();
+        nodeCluster = new int[nodeCount];
+        int clusters = clustersX * clustersY;
+        clusterNodeStart = new int[clusters + 1];
+        for (int n = 0; n < nodeCount; n++) {
+            nodeCluster[n] = clusterOf(nodeTile[n]);
+            clusterNodeStart[nodeCluster[n] + 1]++;
+        }
+        for (int c = 0; c < clusters; c++) {
+            clusterNodeStart[c + 1] += clusterNodeStart[c];
+        }
+        clusterNodes = new int[nodeCount];
+        int[] fill = Arrays.copyOf(clusterNodeStart, clusters);
+        for (int n = 0; n < nodeCount; n++) {
+            clusterNodes[fill[nodeCluster[n]]++] = n;
+        }
+
+        // Edges: inter-cluster links cost one step, intra-cluster links
+        // cost the BFS distance inside the cluster
+        IntBuffer from = new IntBuffer();
+        IntBuffer to = new IntBuffer();
+        IntBuffer cost = new IntBuffer();
+        for (int i = 0; i < links.size(); i += 2) {
+            int a = links.get(i);
+            int b = links.get(i + 1);
+            from.add(a); to.add(b); cost.add(1);
+            from.add(b); to.add(a); cost.add(1);
+        }
+        for (int c = 0; c < clusters; c++) {
+            for (int i = clusterNodeStart[c]; i < clusterNodeStart[c + 1]; i++) {
+                int a = clusterNodes[i];
+                localSearch(c, nodeTile[a], startDist, startParent);
+                for (int j = clusterNodeStart[c]; j < clusterNodeStart[c + 1]; j++) {
+                    int b = clusterNodes[j];
+                    int d = startDist[localIndex(c, nodeTile[b])];
+                    if (b != a && d != UNSEEN) {
+                        from.add(a); to.add(b); cost.add(d);
+                    }
+                }
+            }
+        }
+
+        edgeStart = new int[nodeCount + 1];
+        for (int i = 0; i < from.size(); i++) {
+            edgeStart[from.get(i) + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            edgeStart[n + 1] += edgeStart[n];
+        }
+        edgeTo = new int[from.size()];
+        edgeCost = new int[from.size()];
+        int[] next = Arrays.copyOf(edgeStart, nodeCount);
+        for (int i = 0; i < from.size(); i++) {
+            int slot = next[from.get(i)]++;
+            edgeTo[slot] = to.get(i);
+            edgeCost[slot] = cost.get(i);
+        }
+
+        int searchNodes = nodeCount + 2;
+        stamp = new int[searchNodes];
+        gScore = new int[searchNodes];
+        fScore = new int[searchNodes];
+        parent = new int[searchNodes];
+        closed = new boolean[searchNodes];
+        heap = new int[searchNodes];
+        heapIndex = new int[searchNodes];
+        routes = new int[ROUTE_SLOTS][nodeCount];
+        invalidate();
+    }
+
+    /**
+     * Scans one border segment for runs of open tile pairs.
+     * For vertical borders {@code line} is the column left of the border and
+     * the run goes along rows; for horizontal borders it is the row above.
+     */
+    private void addEntrances(int[] nodeOfTile, IntBuffer tiles, IntBuffer links,
+                              int line, int first, int last, boolean vertical) {
+        int runStart = -1;
+        for (int i = first; i <= last + 1; i++) {
+            boolean open = i <= last && (vertical
+                    ? grid.isWalkable(line, i) && grid.isWalkable(line + 1, i)
+                    : grid.isWalkable(i, line) && grid.isWalkable(i, line + 1));
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 >= WIDE_ENTRANCE) {
+                    linkAcross(nodeOfTile, tiles, links, line, runStart, vertical);
+                    linkAcross(nodeOfTile, tiles, links, line, runEnd, vertical);
+                } else {
+                    linkAcross(nodeOfTile, tiles, links, line, (runStart + runEnd) / 2, vertical);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    private void linkAcross(int[] nodeOfTile, IntBuffer tiles, IntBuffer links,
+                            int line, int at, boolean vertical) {
+        int a = vertical ? at * columns + line : line * columns + at;
+        int b = vertical ? a + 1 : a + columns;
+        links.add(nodeFor(nodeOfTile, tiles, a));
+        links.add(nodeFor(nodeOfTile, tiles, b));
+    }
+
+    private int nodeFor(int[] nodeOfTile, IntBuffer tiles, int tile) {
+        if (nodeOfTile[tile] < 0) {
+            nodeOfTile[tile] = tiles.size();
+            tiles.add(tile);
+        }
+        return nodeOfTile[tile];
+    }
+
+    // Queries
+
+    @Override
+    public void invalidate() {
+        Arrays.fill(routeGoals, -1);
+        Arrays.fill(routeLengths, 0);
+    }
+
+    /**
+     * A target inside a wall is moved to the nearest open tile.
+     */
+    @Override
+    public Direction nextStep(int fromCol, int fromRow, int toCol, int toRow) {
+        int start = grid.tileIndex(fromCol, fromRow);
+        int goal = grid.nearestWalkableTile(toCol, toRow);
+        if (start < 0 || goal < 0 || start == goal) return null;
+        if (!grid.isWalkable(start % columns, start / columns)) return null;
+
+        int startCluster = clusterOf(start);
+        localSearch(startCluster, start, startDist, startParent);
+        localRefinements++;
+
+        // Reachable without leaving the cluster: no abstract search needed
+        if (clusterOf(goal) == startCluster) {
+            int goalLocal = localIndex(startCluster, goal);
+            if (startDist[goalLocal] != UNSEEN) {
+                return firstStepTo(startCluster, start, goal);
+            }
+        }
+
+        int slot = routeSlotFor(goal);
+        if (slot >= 0) {
+            Direction step = followRoute(slot, startCluster, start);
+            if (step != null) return step;
+        } else {
+            slot = nextRouteSlot;
+            nextRouteSlot = (nextRouteSlot + 1) % ROUTE_SLOTS;
+        }
+
+        if (!abstractSearch(start, startCluster, goal, slot)) {
+            routeGoals[slot] = -1;
+            return null;
+        }
+        routeGoals[slot] = goal;
+        return followRoute(slot, startCluster, start);
+    }
+
+    private int routeSlotFor(int goal) {
+        for (int i = 0; i < ROUTE_SLOTS; i++) {
+            if (routeGoals[i] == goal) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Heads for the furthest node of the stored route that can be reached
+     * inside the current cluster, or crosses the border once standing on it.
+     */
+    private Direction followRoute(int slot, int cluster, int start) {
+        int[] route = routes[slot];
+        int routeLength = routeLengths[slot];
+        for (int i = routeLength - 1; i >= 0; i--) {
+            int node = route[i];
+            if (nodeCluster[node] != cluster) continue;
+            if (startDist[localIndex(cluster, nodeTile[node])] == UNSEEN) continue;
+
+            if (nodeTile[node] != start) {
+                return firstStepTo(cluster, start, nodeTile[node]);
+            }
+            if (i + 1 < routeLength) {
+                return grid.stepDirection(start, nodeTile[route[i + 1]]);
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private Direction firstStepTo(int cluster, int start, int target) {
+        int startLocal = localIndex(cluster, start);
+        int local = localIndex(cluster, target);
+        while (startParent[local] != startLocal) {
+            local = startParent[local];
+        }
+        return grid.stepDirection(start, globalTile(cluster, local));
+    }
+
+    private boolean abstractSearch(int start, int startCluster, int goal, int slot) {
+        abstractSearches++;
+        int goalCluster = clusterOf(goal);
+        localSearch(goalCluster, goal, goalDist, goalParent);
+
+        int startNode = nodeCount;
+        int goalNode = nodeCount + 1;
+        int goalCol = goal % columns;
+        int goalRow = goal / columns;
+
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+
+        touch(startNode);
+        gScore[startNode] = 0;
+        fScore[startNode] = heuristic(start, goalCol, goalRow);
+        push(startNode);
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (current == goalNode) {
+                storeRoute(slot, startNode, goalNode);
+                return true;
+            }
+            closed[current] = true;
+
+            if (current == startNode) {
+                for (int i = clusterNodeStart[startCluster]; i < clusterNodeStart[startCluster + 1]; i++) {
+                    int node = clusterNodes[i];
+                    int d = startDist[localIndex(startCluster, nodeTile[node])];
+                    if (d != UNSEEN) {
+                        relax(current, node, d, goalCol, goalRow);
+                    }
+                }
+                continue;
+            }
+
+            for (int e = edgeStart[current]; e < edgeStart[current + 1]; e++) {
+                relax(current, edgeTo[e], edgeCost[e], goalCol, goalRow);
+            }
+            if (nodeCluster[current] == goalCluster) {
+                int d = goalDist[localIndex(goalCluster, nodeTile[current])];
+                if (d != UNSEEN) {
+                    relax(current, goalNode, d, goalCol, goalRow);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void relax(int from, int to, int cost, int goalCol, int goalRow) {
+        int g = gScore[from] + cost;
+        if (stamp[to] != generation) {
+            touch(to);
+        } else if (closed[to] || g >= gScore[to]) {
+            return;
+        }
+
+        gScore[to] = g;
+        fScore[to] = g + (to == nodeCount + 1 ? 0 : heuristic(nodeTile[to], goalCol, goalRow));
+        parent[to] = from;
+        if (heapIndex[to] < 0) {
+            push(to);
+        } else {
+            siftUp(heapIndex[to]);
+        }
+    }
+
+    private void storeRoute(int slot, int startNode, int goalNode) {
+        int[] route = routes[slot];
+        int routeLength = 0;
+        for (int n = parent[goalNode]; n != startNode; n = parent[n]) {
+            route[routeLength++] = n;
+        }
+        // Collected backwards, flip into travel order
+        for (int i = 0, j = routeLength - 1; i < j; i++, j--) {
+            int tmp = route[i];
+            route[i] = route[j];
+            route[j] = tmp;
+        }
+        routeLengths[slot] = routeLength;
+    }
+
+    private void touch(int node) {
+        stamp[node] = generation;
+        gScore[node] = Integer.MAX_VALUE;
+        closed[node] = false;
+        heapIndex[node] = -1;
+    }
+
+    private int heuristic(int tile, int goalCol, int goalRow) {
+        int dx = Math.abs(tile % columns - goalCol);
+        if (hasPortals) {
+            dx = Math.min(dx, columns - dx);
+        }
+        return dx + Math.abs(tile / columns - goalRow);
+    }
+
+    // Tile-level search confined to one cluster
+
+    private void localSearch(int cluster, int source, int[] dist, int[] parentOut) {
+        Arrays.fill(dist, UNSEEN);
+        int x0 = (cluster % clustersX) * clusterSize;
+        int y0 = (cluster / clustersX) * clusterSize;
+        int x1 = Math.min(columns, x0 + clusterSize);
+        int y1 = Math.min(rows, y0 + clusterSize);
+
+        int sourceLocal = localIndex(cluster, source);
+        dist[sourceLocal] = 0;
+        parentOut[sourceLocal] = sourceLocal;
+        int head = 0;
+        int tail = 0;
+        localQueue[tail++] = sourceLocal;
+
+        while (head < tail) {
+            int current = localQueue[head++];
+            int c = x0 + current % clusterSize;
+            int r = y0 + current / clusterSize;
+            for (int d = 0; d < 4; d++) {
+                int nc = c + DX[d];
+                int nr = r + DY[d];
+                if (nc < x0 || nc >= x1 || nr < y0 || nr >= y1 || !grid.isWalkable(nc, nr)) continue;
+
+                int neighbor = (nr - y0) * clusterSize + (nc - x0);
+                if (dist[neighbor] == UNSEEN) {
+                    dist[neighbor] = dist[current] + 1;
+                    parentOut[neighbor] = current;
+                    localQueue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    private int clusterOf(int tile) {
+        return ((tile / columns) / clusterSize) * clustersX + (tile % columns) / clusterSize;
+    }
+
+    private int localIndex(int cluster, int tile) {
+        int x0 = (cluster % clustersX) * clusterSize;
+        int y0 = (cluster / clustersX) * clusterSize;
+        return (tile / columns - y0) * clusterSize + (tile % columns - x0);
+    }
+
+    private int globalTile(int cluster, int local) {
+        int x0 = (cluster % clustersX) * clusterSize;
+        int y0 = (cluster / clustersX) * clusterSize;
+        return (y0 + local / clusterSize) * columns + x0 + local % clusterSize;
+    }
+
+    // Heap operations
+
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parentNode = heap[parentIndex];
+            if (fScore[node] >= fScore[parentNode]) break;
+            heap[index] = parentNode;
+            heapIndex[parentNode] = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && fScore[heap[child + 1]] < fScore[heap[child]]) {
+                child++;
+            }
+            if (fScore[heap[child]] >= fScore[node]) break;
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+
+    /**
+     * Growable int list used only while building the abstract graph.
+     */
+    private static class IntBuffer {
+        private int[] data = new int[64];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int get(int index) { return data[index]; }
+        int size() { return size; }
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+
+    // Getters
+    public int getNodeCount() { return nodeCount; }
+    public int getEdgeCount() { return edgeTo.length; }
+    public int getClusterSize() { return clusterSize; }
+    public int getAbstractSearchCount() { return abstractSearches; }
+    public int getLocalRefinementCount() { return localRefinements; }
+}
@@ -1,17 +1,60 @@
 package utils;
-import javax.swing.ImageIcon;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads images from the classpath through a cache shared by every
+ * ImageManager. Each resource is decoded once into an image in the screen's
+ * own pixel format, and each size asked for is scaled once, so drawing it
+ * at that size is a plain copy. Load-time I/O grows with the number of
+ * distinct assets, not with how often they are asked for; a path that
+ * fails to load is remembered too, and reported once.
+ */
 public class ImageManager {
+    // Keyed by path for the decoded image, path@WxH for scaled copies
+    private static final Map<String, BufferedImage> cache = new ConcurrentHashMap<>();
+    // Cached for a path that failed to load, so it is looked up and reported once
+    private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
     public Image loadImage(String path) {
-        try {
-            return new ImageIcon(getClass().getResource(path)).getImage();
-        } catch (Exception e) {
-            System.err.println("Error loading image: " + path);
-            return null;
+        return cached(path);
+    }
+
+    /** The image scaled to the given size, for drawing without per-frame rescaling. */
+    public Image loadImage(String path, int width, int height) {
+        BufferedImage original = cached(path);
+        if (original == null) return null;
+        if (original.getWidth() == width && original.getHeight() == height) return original;
+        return cache.computeIfAbsent(path + "@" + width + "x" + height, key -> scale(original, width, height));
+    }
+
+    /**
+     * Packs images, each scaled to one cell size, side by side into a single
+     * atlas image; cell i is paths[i]. A missing image leaves its cell empty.
+     */
+    public SpriteAtlas loadAtlas(int cellWidth, int cellHeight, String... paths) {
+        BufferedImage sheet = createCompatible(cellWidth * paths.length, cellHeight);
+        Graphics2D g = sheet.createGraphics();
+        for (int i = 0; i < paths.length; i++) {
+            Image image = loadImage(paths[i], cellWidth, cellHeight);
+            if (image != null) {
+                g.drawImage(image, i * cellWidth, 0, null);
+            }
         }
+        g.dispose();
+        return new SpriteAtlas(sheet, cellWidth, cellHeight, paths.length);
     }
-    
+
     public Image[] loadAnimationFrames(String basePath, int frameCount) {
         Image[] frames = new Image[frameCount];
         for (int i = 0; i < frameCount; i++) {
@@ -19,4 +62,52 @@ public class ImageManager {
         }
         return frames;
     }
-}
\ No newline at end of file
+
+    private BufferedImage cached(String path) {
+        BufferedImage image = cache.get(path);
+        if (image == null) {
+            image = decode(path);
+            BufferedImage raced = cache.putIfAbsent(path, image);
+            if (raced != null) image = raced;
+        }
+        return image == MISSING ? null : image;
+    }
+
+    private BufferedImage decode(String path) {
+        try {
+            URL resource = getClass().getResource(path);
+            BufferedImage decoded = resource != null ? ImageIO.read(resource) : null;
+            if (decoded == null) {
+                System.err.println("Error loading image: " + path);
+                return MISSING;
+            }
+            BufferedImage image = createCompatible(decoded.getWidth(), decoded.getHeight());
+            Graphics2D g = image.createGraphics();
+            g.drawImage(decoded, 0, 0, null);
+            g.dispose();
+            return image;
+        } catch (IOException e) {
+            System.err.println("Error loading image: " + path);
+            return MISSING;
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage original, int width, int height) {
+        BufferedImage scaled = createCompatible(width, height);
+        Graphics2D g = scaled.createGraphics();
+        // The sprites are pixel art; keep their edges hard
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(original, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    private static BufferedImage createCompatible(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}
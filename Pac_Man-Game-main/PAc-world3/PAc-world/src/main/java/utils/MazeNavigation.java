@@ -0,0 +1,35 @@
+package utils;
+
+/**
+ * Navigation services shared by every ghost on a board.
+ * Everything here is derived from the tile grid when the map is loaded,
+ * except the player distance field which the board refreshes each tick.
+ * A new map gets a new instance, which is what invalidates cached paths.
+ */
+public class MazeNavigation {
+    // Above this many tiles flat A* gets slow enough to switch to HPA*
+    private static final int FLAT_SEARCH_LIMIT = 128 * 128;
+
+    private final TileGrid grid;
+    private final NavGraph navGraph;
+    private final DistanceField playerDistance;
+    private final Pathfinder pathfinder;
+    private final AiLevelOfDetail levelOfDetail;
+
+    public MazeNavigation(TileGrid grid) {
+        this.grid = grid;
+        this.navGraph = new NavGraph(grid);
+        this.playerDistance = new DistanceField(grid);
+        this.pathfinder = grid.getColumns() * grid.getRows() > FLAT_SEARCH_LIMIT
+                ? new HierarchicalPathfinder(grid)
+                : new AStarPathfinder(grid);
+        this.levelOfDetail = AiLevelOfDetail.forGrid(grid);
+    }
+
+    // Getters
+    public TileGrid getGrid() { return grid; }
+    public NavGraph getNavGraph() { return navGraph; }
+    public DistanceField getPlayerDistance() { return playerDistance; }
+    public Pathfinder getPathfinder() { return pathfinder; }
+    public AiLevelOfDetail getLevelOfDetail() { return levelOfDetail; }
+}
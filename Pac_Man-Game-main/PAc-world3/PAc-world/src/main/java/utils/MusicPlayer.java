@@ -0,0 +1,389 @@
+package utils;
+
+import javax.sound.sampled.*;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams background music instead of decoding it into a Clip. A track is
+ * decoded a small fixed block at a time (WAV, or MP3 and OGG through the
+ * SPIs on the classpath), so the heap used is the same whatever the track
+ * length and starting a track does not wait for it to decode.
+ *
+ * A looping track has its next pass opened ahead of time, by play() for
+ * the second pass and then by a "music-prefetch" thread whenever a pass
+ * starts, so the output thread only swaps the prepared stream in at the
+ * end and the loop has no gap (apart from any padding the encoder put in
+ * the file itself). The output thread never opens or probes a file; if a
+ * pass were ever not ready in time, or the decoder had nothing for it yet,
+ * it would play silence until there is audio again. A new track
+ * crossfades with the one playing. Output is 44.1 kHz stereo, either to a
+ * line of the player's own (start()) or mixed into an AudioMixer's output.
+ */
+public class MusicPlayer {
+    private static final int READ_FRAMES = 1024;
+    private static final long ONE = 1L << 32;
+    private static final int WAIT_FRAMES = 256;
+
+    // Opens the next pass of looping tracks, off the output thread
+    private static final ExecutorService prefetch = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "music-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int bufferFrames;
+    private final int periodFrames;
+    private final int[] accumulator;
+    private final byte[] period;
+    private volatile float gain = 1f;
+
+    // The playing track and, during a crossfade, the one fading out; guarded by this
+    private Deck current;
+    private Deck outgoing;
+
+    private SourceDataLine line;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /** @param bufferMillis size of the output line buffer when the player has its own line */
+    public MusicPlayer(int bufferMillis) {
+        this.bufferFrames = Math.max(1024, (int) (AudioMixer.SAMPLE_RATE * bufferMillis / 1000));
+        this.periodFrames = bufferFrames / 4;
+        this.accumulator = new int[periodFrames * AudioMixer.CHANNELS];
+        this.period = new byte[periodFrames * AudioMixer.CHANNELS * 2];
+    }
+
+    /**
+     * Opens an output line and starts the "music-stream" thread. Not needed
+     * when the player is attached to an AudioMixer.
+     * @return false if there is no audio device
+     */
+    public synchronized boolean start() {
+        if (running) return true;
+        AudioFormat format = new AudioFormat(AudioMixer.SAMPLE_RATE, 16, AudioMixer.CHANNELS, true, false);
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, period.length * 4);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("No audio line for music: " + e.getMessage());
+            line = null;
+            return false;
+        }
+        line.start();
+        running = true;
+        thread = new Thread(this::run, "music-stream");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void run() {
+        while (running) {
+            Arrays.fill(accumulator, 0);
+            mixInto(accumulator, periodFrames);
+            AudioMixer.toPcm(accumulator, period, 0, periodFrames);
+            line.write(period, 0, period.length);
+        }
+    }
+
+    /**
+     * Starts a track, crossfading from whatever plays now. The file (and for
+     * a loop, its second pass) is opened on the calling thread, so the output
+     * thread never waits on it.
+     * @return false if the track cannot be opened
+     */
+    public boolean play(String filename, boolean loop, int crossfadeMillis) {
+        Deck deck;
+        try {
+            deck = new Deck(filename, loop);
+        } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+            System.err.println("Error streaming music '" + filename + "': " + e.getMessage());
+            return false;
+        }
+
+        int fadeFrames = framesFor(crossfadeMillis);
+        Deck closed = null;
+        synchronized (this) {
+            if (outgoing != null) {
+                closed = outgoing;
+            }
+            outgoing = null;
+            if (current != null) {
+                if (fadeFrames > 0) {
+                    outgoing = current;
+                    outgoing.fadeTo(0f, fadeFrames);
+                } else {
+                    closed = current;
+                }
+            }
+            deck.gain = fadeFrames > 0 && outgoing != null ? 0f : 1f;
+            deck.fadeTo(1f, fadeFrames);
+            current = deck;
+        }
+        if (closed != null) {
+            closed.close();
+        }
+        return true;
+    }
+
+    /** Fades the music out and stops it. */
+    public void stop(int fadeMillis) {
+        int fadeFrames = framesFor(fadeMillis);
+        Deck closed;
+        Deck cut = null;
+        synchronized (this) {
+            closed = outgoing;
+            outgoing = null;
+            if (current != null && fadeFrames > 0) {
+                outgoing = current;
+                outgoing.fadeTo(0f, fadeFrames);
+            } else {
+                cut = current;
+            }
+            current = null;
+        }
+        if (closed != null) closed.close();
+        if (cut != null) cut.close();
+    }
+
+    /** Adds the next frames of music (44.1 kHz stereo) to a mixing accumulator. */
+    public synchronized void mixInto(int[] accumulator, int frames) {
+        float volume = gain;
+        if (outgoing != null && !outgoing.mix(accumulator, frames, volume)) {
+            outgoing.close();
+            outgoing = null;
+        }
+        if (current != null && !current.mix(accumulator, frames, volume)) {
+            current.close();
+            current = null;
+        }
+    }
+
+    public void close() {
+        running = false;
+        Thread musicThread = thread;
+        if (musicThread != null) {
+            try {
+                musicThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stop(0);
+        synchronized (this) {
+            thread = null;
+            if (line != null) {
+                line.stop();
+                line.close();
+                line = null;
+            }
+        }
+    }
+
+    private static int framesFor(int millis) {
+        return (int) (AudioMixer.SAMPLE_RATE * Math.max(0, millis) / 1000);
+    }
+
+    public synchronized boolean isPlaying() {
+        return current != null;
+    }
+
+    // Getters and setters
+    public float getGain() { return gain; }
+    public void setGain(float gain) { this.gain = Math.max(0f, gain); }
+    public double getBufferMillis() { return bufferFrames * 1000.0 / AudioMixer.SAMPLE_RATE; }
+
+    /**
+     * One open track: the pass being decoded (and for a loop, the next one
+     * opened ahead), a fixed read block and the resampler state (the two
+     * source frames around the output position).
+     */
+    private static class Deck {
+        private final String filename;
+        private final boolean loop;
+        private final byte[] block;
+        private Pass pass;
+        private Future<Pass> nextPass;
+        private int blockLength = 0;
+        private int blockPosition = 0;
+        private int previousLeft, previousRight, nextLeft, nextRight;
+        private long fraction = 0;
+        private boolean ended = false;
+
+        private float gain = 1f;
+        private float fadeStep = 0f;
+        private int fadeRemaining = 0;
+        private float fadeTarget = 1f;
+
+        Deck(String filename, boolean loop) throws IOException, UnsupportedAudioFileException {
+            this.filename = filename;
+            this.loop = loop;
+            this.pass = new Pass(filename);
+            // Stereo is the widest source handled, 2 bytes per sample
+            this.block = new byte[READ_FRAMES * 4];
+            if (loop) {
+                try {
+                    nextPass = CompletableFuture.completedFuture(new Pass(filename));
+                } catch (IOException | UnsupportedAudioFileException e) {
+                    pass.close();
+                    throw e;
+                }
+            }
+            if (!nextFrame() || !nextFrame()) {
+                close();
+                throw new IOException("empty track");
+            }
+        }
+
+        void fadeTo(float target, int frames) {
+            fadeTarget = target;
+            fadeRemaining = frames;
+            fadeStep = frames > 0 ? (target - gain) / frames : 0f;
+            if (frames == 0) gain = target;
+        }
+
+        /** @return false once the track has ended or faded out */
+        boolean mix(int[] accumulator, int frames, float volume) {
+            for (int f = 0; f < frames; f++) {
+                while (fraction >= ONE) {
+                    fraction -= ONE;
+                    if (!nextFrame()) return false;
+                }
+                int mix = (int) ((fraction >>> 16) & 0xFFFF);
+                int left = previousLeft + ((nextLeft - previousLeft) * mix >> 16);
+                int right = previousRight + ((nextRight - previousRight) * mix >> 16);
+                float level = gain * volume;
+                accumulator[f * 2] += (int) (left * level);
+                accumulator[f * 2 + 1] += (int) (right * level);
+                fraction += pass.step;
+
+                if (fadeRemaining > 0) {
+                    gain += fadeStep;
+                    if (--fadeRemaining == 0) {
+                        gain = fadeTarget;
+                        if (gain == 0f) return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Shifts in the next source frame, reading (and at the end, looping) as needed
+        private boolean nextFrame() {
+            if (ended) return false;
+            int channels = pass.channels;
+            int frameBytes = channels * 2;
+            if (blockPosition + frameBytes > blockLength && !fill()) {
+                ended = true;
+                return false;
+            }
+            previousLeft = nextLeft;
+            previousRight = nextRight;
+            nextLeft = (short) ((block[blockPosition] & 0xFF) | (block[blockPosition + 1] << 8));
+            nextRight = channels == 1 ? nextLeft
+                    : (short) ((block[blockPosition + 2] & 0xFF) | (block[blockPosition + 3] << 8));
+            blockPosition += frameBytes;
+            return true;
+        }
+
+        // AudioInputStream only returns whole frames, so a block never splits one
+        private boolean fill() {
+            try {
+                boolean swapped = false;
+                for (int emptyReads = 0; emptyReads < 8; ) {
+                    int read = pass.stream.read(block, 0, block.length);
+                    if (read > 0) {
+                        blockLength = read;
+                        blockPosition = 0;
+                        return true;
+                    }
+                    if (read == 0) {
+                        emptyReads++;
+                        continue;
+                    }
+                    if (nextPass == null || swapped) return false;
+                    if (!nextPass.isDone()) {
+                        // Not opened yet: hold the last frame's place with silence rather than wait
+                        return fillSilence();
+                    }
+                    // End of the track: swap in the pass opened ahead and prepare the one after
+                    Pass next = nextPass.get();
+                    pass.close();
+                    pass = next;
+                    nextPass = prefetch.submit(() -> new Pass(filename));
+                    swapped = true;
+                }
+                // The decoder keeps returning nothing without reaching the end; try again next block
+                return fillSilence();
+            } catch (IOException | ExecutionException e) {
+                System.err.println("Error streaming music '" + filename + "': " + e.getMessage());
+                nextPass = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        private boolean fillSilence() {
+            blockLength = WAIT_FRAMES * pass.channels * 2;
+            blockPosition = 0;
+            Arrays.fill(block, 0, blockLength, (byte) 0);
+            return true;
+        }
+
+        void close() {
+            pass.close();
+            Future<Pass> pending = nextPass;
+            nextPass = null;
+            if (pending != null && !pending.cancel(false)) {
+                // Already opened (or opening): close it once it is there
+                prefetch.execute(() -> {
+                    try {
+                        pending.get().close();
+                    } catch (InterruptedException | ExecutionException e) {
+                        // Never opened, nothing to close
+                    }
+                });
+            }
+        }
+    }
+
+    /** One pass through a track: the decoding stream and its source format. */
+    private static class Pass {
+        final AudioInputStream stream;
+        final int channels;
+        final long step;
+
+        Pass(String filename) throws IOException, UnsupportedAudioFileException {
+            InputStream resource = MusicPlayer.class.getResourceAsStream("/sounds/" + filename);
+            if (resource == null) {
+                throw new IOException("not found");
+            }
+            AudioInputStream encoded = AudioSystem.getAudioInputStream(new BufferedInputStream(resource));
+            AudioFormat format = SoundBank.pcmFormat(encoded.getFormat());
+            if (format.getChannels() > 2) {
+                encoded.close();
+                throw new UnsupportedAudioFileException("more than two channels");
+            }
+            stream = AudioSystem.getAudioInputStream(format, encoded);
+            channels = format.getChannels();
+            step = (long) (format.getSampleRate() / AudioMixer.SAMPLE_RATE * ONE);
+        }
+
+        void close() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Navigation graph precomputed from the tile grid.
+ * Junctions (any open tile that does not have exactly two exits) are the
+ * nodes, the corridors between them are edges with their length in tiles.
+ * Tunnel rows link the left and right edge of the map as portals.
+ */
+public class NavGraph {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Indexed by Direction.ordinal(): UP, DOWN, LEFT, RIGHT
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    private final TileGrid grid;
+    private final int columns;
+    private final int rows;
+
+    // Exit bitmask per tile, one bit per Direction ordinal
+    private final byte[] exits;
+    // Node index per tile, -1 for corridor tiles and walls
+    private final int[] nodeOfTile;
+    private int[] nodeTiles;
+    private int nodeCount = 0;
+
+    // Per node and direction: node reached by following that corridor
+    private int[] edgeTarget;
+    private int[] edgeLength;
+
+    private int portalCount = 0;
+
+    public NavGraph(TileGrid grid) {
+        this.grid = grid;
+        this.columns = grid.getColumns();
+        this.rows = grid.getRows();
+        this.exits = new byte[columns * rows];
+        this.nodeOfTile = new int[columns * rows];
+        build();
+    }
+
+    private void build() {
+        Arrays.fill(nodeOfTile, -1);
+        int[] junctions = new int[columns * rows];
+
+        for (int r = 0; r < rows; r++) {
+            if (grid.isPortalRow(r)) {
+                portalCount++;
+            }
+            for (int c = 0; c < columns; c++) {
+                if (!grid.isWalkable(c, r)) continue;
+
+                int tile = r * columns + c;
+                int mask = 0;
+                for (int d = 0; d < 4; d++) {
+                    if (neighbor(c, r, d) >= 0) {
+                        mask |= 1 << d;
+                    }
+                }
+                exits[tile] = (byte) mask;
+
+                if (Integer.bitCount(mask) != 2) {
+                    nodeOfTile[tile] = nodeCount;
+                    junctions[nodeCount++] = tile;
+                }
+            }
+        }
+
+        nodeTiles = Arrays.copyOf(junctions, nodeCount);
+        edgeTarget = new int[nodeCount * 4];
+        edgeLength = new int[nodeCount * 4];
+        Arrays.fill(edgeTarget, -1);
+
+        for (int node = 0; node < nodeCount; node++) {
+            for (int d = 0; d < 4; d++) {
+                if ((exits[nodeTiles[node]] & (1 << d)) != 0) {
+                    traceCorridor(node, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks from a junction along one exit until the next junction.
+     */
+    private void traceCorridor(int node, int startDir) {
+        int tile = nodeTiles[node];
+        int heading = startDir;
+        int length = 0;
+        int limit = columns * rows;
+
+        do {
+            tile = neighbor(tile % columns, tile / columns, heading);
+            length++;
+            if (nodeOfTile[tile] >= 0) {
+                edgeTarget[node * 4 + startDir] = nodeOfTile[tile];
+                edgeLength[node * 4 + startDir] = length;
+                return;
+            }
+            heading = corridorExit(tile, heading);
+        } while (heading >= 0 && length < limit);
+    }
+
+    /**
+     * Next tile index in a direction, following tunnels, or -1 if blocked.
+     */
+    private int neighbor(int col, int row, int dir) {
+        int nextRow = row + DY[dir];
+        int nextCol = grid.wrapColumn(col + DX[dir], nextRow);
+        if (nextCol < 0 || !grid.isWalkable(nextCol, nextRow)) {
+            return -1;
+        }
+        return nextRow * columns + nextCol;
+    }
+
+    private int corridorExit(int tile, int heading) {
+        int mask = exits[tile] & ~(1 << (heading ^ 1));
+        if ((mask & (1 << heading)) != 0) {
+            return heading;
+        }
+        return mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Ghosts only need to choose a direction on junction tiles; anything
+     * off the graph (walls, off-map) is treated as a decision point too so
+     * the caller falls back to its full search.
+     */
+    public boolean isDecisionPoint(int col, int row) {
+        int tile = grid.tileIndex(col, row);
+        return tile < 0 || exits[tile] == 0 || nodeOfTile[tile] >= 0;
+    }
+
+    /**
+     * Direction that continues along the corridor, or null on junctions.
+     */
+    public Direction corridorDirection(int col, int row, Direction heading) {
+        int tile = grid.tileIndex(col, row);
+        if (tile < 0 || nodeOfTile[tile] >= 0 || heading == null) return null;
+
+        int dir = corridorExit(tile, heading.ordinal());
+        return dir < 0 ? null : DIRECTIONS[dir];
+    }
+
+    public boolean canMove(int col, int row, Direction dir) {
+        int tile = grid.tileIndex(col, row);
+        return tile >= 0 && dir != null && (exits[tile] & (1 << dir.ordinal())) != 0;
+    }
+
+    public int getNodeAt(int col, int row) {
+        int tile = grid.tileIndex(col, row);
+        return tile < 0 ? -1 : nodeOfTile[tile];
+    }
+
+    public int getEdgeTarget(int node, Direction dir) {
+        return edgeTarget[node * 4 + dir.ordinal()];
+    }
+
+    public int getEdgeLength(int node, Direction dir) {
+        return edgeLength[node * 4 + dir.ordinal()];
+    }
+
+    // Getters
+    public int getNodeCount() { return nodeCount; }
+    public int getNodeColumn(int node) { return nodeTiles[node] % columns; }
+    public int getNodeRow(int node) { return nodeTiles[node] / columns; }
+    public int getPortalCount() { return portalCount; }
+    public TileGrid getGrid() { return grid; }
+}
@@ -0,0 +1,17 @@
+package utils;
+
+/**
+ * Answers "which way should I step to reach this tile" on a tile grid.
+ */
+public interface Pathfinder {
+    /**
+     * First step of a path between two tiles.
+     * @return the direction to move, or null if already there or unreachable
+     */
+    Direction nextStep(int fromCol, int fromRow, int toCol, int toRow);
+
+    /**
+     * Drops any cached paths. Call when walls change.
+     */
+    void invalidate();
+}
@@ -0,0 +1,247 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Per-tile pellet storage.
+ * Regular dots live in a bitset, power pellets and cherries in a small typed
+ * table, so pickup by tile and the remaining count are both constant time.
+ */
+public class PelletLayer {
+    public enum Kind {
+        DOT(10),
+        POWER_PELLET(50),
+        CHERRY(100);
+
+        private final int points;
+
+        Kind(int points) {
+            this.points = points;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+    }
+
+    private final int columns;
+    private final int rows;
+    private final long[] dots;
+    private final long[] specials;
+
+    // Typed table for power pellets and cherries (few per map)
+    private int[] specialTiles = new int[8];
+    private Kind[] specialKinds = new Kind[8];
+    private int specialCount = 0;
+
+    // Dots plus power pellets, cherries are a bonus and do not count
+    private int remaining = 0;
+
+    // Tiles in the order they were eaten, so views can catch up incrementally.
+    // The version changes whenever pellets are added or cleared instead.
+    private int[] eatenLog = new int[64];
+    private int eatenCount = 0;
+    private int version = 0;
+
+    public PelletLayer(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        int words = (columns * rows + 63) >>> 6;
+        this.dots = new long[words];
+        this.specials = new long[words];
+    }
+
+    public void add(int col, int row, Kind kind) {
+        if (!isInside(col, row) || kindAt(col, row) != null) return;
+
+        int tile = row * columns + col;
+        if (kind == Kind.DOT) {
+            dots[tile >>> 6] |= 1L << tile;
+        } else {
+            if (specialCount == specialTiles.length) {
+                specialTiles = Arrays.copyOf(specialTiles, specialCount * 2);
+                specialKinds = Arrays.copyOf(specialKinds, specialCount * 2);
+            }
+            specialTiles[specialCount] = tile;
+            specialKinds[specialCount] = kind;
+            specialCount++;
+            specials[tile >>> 6] |= 1L << tile;
+        }
+
+        if (kind != Kind.CHERRY) {
+            remaining++;
+        }
+        version++;
+    }
+
+    public Kind kindAt(int col, int row) {
+        if (!isInside(col, row)) return null;
+
+        int tile = row * columns + col;
+        if ((dots[tile >>> 6] & (1L << tile)) != 0) {
+            return Kind.DOT;
+        }
+        if ((specials[tile >>> 6] & (1L << tile)) != 0) {
+            return specialKinds[indexOfSpecial(tile)];
+        }
+        return null;
+    }
+
+    /**
+     * Removes whatever pellet sits on the tile.
+     * @return the kind that was eaten, or null if the tile was empty
+     */
+    public Kind eatAt(int col, int row) {
+        if (!isInside(col, row)) return null;
+
+        int tile = row * columns + col;
+        long bit = 1L << tile;
+        if ((dots[tile >>> 6] & bit) != 0) {
+            dots[tile >>> 6] &= ~bit;
+            remaining--;
+            logEaten(tile);
+            return Kind.DOT;
+        }
+        if ((specials[tile >>> 6] & bit) != 0) {
+            specials[tile >>> 6] &= ~bit;
+            int index = indexOfSpecial(tile);
+            Kind kind = specialKinds[index];
+
+            // Swap-remove keeps the table dense
+            specialCount--;
+            specialTiles[index] = specialTiles[specialCount];
+            specialKinds[index] = specialKinds[specialCount];
+            specialKinds[specialCount] = null;
+
+            if (kind != Kind.CHERRY) {
+                remaining--;
+            }
+            logEaten(tile);
+            return kind;
+        }
+        return null;
+    }
+
+    private void logEaten(int tile) {
+        if (eatenCount == eatenLog.length) {
+            eatenLog = Arrays.copyOf(eatenLog, eatenCount * 2);
+        }
+        eatenLog[eatenCount++] = tile;
+    }
+
+    /** Tiles currently holding the given special kind, as a new array. */
+    public int[] copySpecialTiles(Kind kind) {
+        int matching = 0;
+        for (int i = 0; i < specialCount; i++) {
+            if (specialKinds[i] == kind) matching++;
+        }
+        int[] tiles = new int[matching];
+        int next = 0;
+        for (int i = 0; i < specialCount; i++) {
+            if (specialKinds[i] == kind) tiles[next++] = specialTiles[i];
+        }
+        return tiles;
+    }
+
+    private int indexOfSpecial(int tile) {
+        for (int i = 0; i < specialCount; i++) {
+            if (specialTiles[i] == tile) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates regular dots: returns the first dot tile index at or after
+     * {@code fromTile}, or -1 when there are no more.
+     */
+    public int nextDot(int fromTile) {
+        int total = columns * rows;
+        if (fromTile < 0) fromTile = 0;
+        if (fromTile >= total) return -1;
+
+        int word = fromTile >>> 6;
+        long bits = dots[word] & (-1L << fromTile);
+        while (true) {
+            if (bits != 0) {
+                int tile = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return tile < total ? tile : -1;
+            }
+            if (++word == dots.length) {
+                return -1;
+            }
+            bits = dots[word];
+        }
+    }
+
+    /** The regular dots as a copy of the bitset (bit tile of word tile / 64). */
+    public long[] copyDots() {
+        return dots.clone();
+    }
+
+    public void clear() {
+        Arrays.fill(dots, 0L);
+        Arrays.fill(specials, 0L);
+        Arrays.fill(specialKinds, null);
+        specialCount = 0;
+        remaining = 0;
+        eatenCount = 0;
+        version++;
+    }
+
+    /** Writes the pellets still on the board for a snapshot. */
+    public void writeState(ByteBuffer buffer) {
+        for (long word : dots) {
+            buffer.putLong(word);
+        }
+        buffer.putInt(specialCount);
+        for (int i = 0; i < specialCount; i++) {
+            buffer.putInt(specialTiles[i]).put((byte) specialKinds[i].ordinal());
+        }
+        buffer.putInt(remaining);
+    }
+
+    /**
+     * Reads back what writeState wrote. The eaten log starts over and the
+     * version changes, so views redraw from the restored pellets.
+     */
+    public void readState(ByteBuffer buffer) {
+        for (int i = 0; i < dots.length; i++) {
+            dots[i] = buffer.getLong();
+        }
+        Arrays.fill(specials, 0L);
+        Arrays.fill(specialKinds, null);
+        specialCount = buffer.getInt();
+        if (specialCount > specialTiles.length) {
+            specialTiles = new int[specialCount];
+            specialKinds = new Kind[specialCount];
+        }
+        Kind[] kinds = Kind.values();
+        for (int i = 0; i < specialCount; i++) {
+            int tile = buffer.getInt();
+            specialTiles[i] = tile;
+            specialKinds[i] = kinds[buffer.get()];
+            specials[tile >>> 6] |= 1L << tile;
+        }
+        remaining = buffer.getInt();
+        eatenCount = 0;
+        version++;
+    }
+
+    private boolean isInside(int col, int row) {
+        return col >= 0 && col < columns && row >= 0 && row < rows;
+    }
+
+    // Getters
+    public int getRemaining() { return remaining; }
+    public int getVersion() { return version; }
+    public int getEatenCount() { return eatenCount; }
+    public int getEatenTile(int index) { return eatenLog[index]; }
+    public int getSpecialCount() { return specialCount; }
+    public int getSpecialTile(int index) { return specialTiles[index]; }
+    public Kind getSpecialKind(int index) { return specialKinds[index]; }
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+}
@@ -0,0 +1,146 @@
+package utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Persistent image of the pellets on a board.
+ * Dots and cherries are drawn once when the level loads; afterwards only the
+ * tiles eaten since the last frame are cleared, using the pellet layer's
+ * eaten log. Power pellets are the only thing drawn every frame, and they
+ * cycle through a few cached pulse sprites instead of being redrawn.
+ *
+ * Everything drawn comes from what the caller passes in (normally copied
+ * into a RenderSnapshot): the dot bitset, the eaten log and the special
+ * tiles. The surface never reads a PelletLayer, so it can draw while
+ * another thread simulates.
+ */
+public class PelletSurface {
+    private static final int PULSE_FRAMES = 8;
+    private static final int PULSE_FRAME_MILLIS = 80;
+
+    private final int columns;
+    private final int tileSize;
+    private final Image powerPelletImage;
+    private final Image cherryImage;
+    private final int width;
+    private final int height;
+
+    private BufferedImage surface;
+    private BufferedImage[] pulseFrames;
+    private int surfaceVersion = -1;
+    private int eatenApplied = 0;
+
+    public PelletSurface(int columns, int rows, int tileSize, Image powerPelletImage, Image cherryImage) {
+        this.columns = columns;
+        this.tileSize = tileSize;
+        this.powerPelletImage = powerPelletImage;
+        this.cherryImage = cherryImage;
+        this.width = columns * tileSize;
+        this.height = rows * tileSize;
+    }
+
+    /**
+     * @param version pellet layer version; a new one redraws everything from dots
+     * @param dots the dot bitset as of the version (PelletLayer.copyDots())
+     * @param eatenTiles the eaten log; entries below eatenCount are never changed
+     */
+    public void draw(Graphics2D g2d, int version, long[] dots, int[] eatenTiles, int eatenCount,
+                     int[] powerPelletTiles, int[] cherryTiles) {
+        if (surface == null) {
+            GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+            surface = createImage(gc, width, height);
+            pulseFrames = new BufferedImage[PULSE_FRAMES];
+            for (int i = 0; i < PULSE_FRAMES; i++) {
+                pulseFrames[i] = createPulseFrame(gc, i);
+            }
+        }
+
+        if (surfaceVersion != version) {
+            redrawAll(version, dots, eatenCount, cherryTiles);
+        } else if (eatenApplied < eatenCount) {
+            eraseEaten(eatenTiles, eatenCount);
+        }
+
+        g2d.drawImage(surface, 0, 0, null);
+
+        // Power pellets pulse through the cached frames
+        BufferedImage frame = pulseFrames[(int) ((System.currentTimeMillis() / PULSE_FRAME_MILLIS) % PULSE_FRAMES)];
+        for (int tile : powerPelletTiles) {
+            g2d.drawImage(frame, (tile % columns) * tileSize, (tile / columns) * tileSize, null);
+        }
+    }
+
+    private void redrawAll(int version, long[] dots, int eatenCount, int[] cherryTiles) {
+        Graphics2D g = surface.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, height);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        Color glow = new Color(255, 255, 255, 50);
+        for (int word = 0; word < dots.length; word++) {
+            for (long bits = dots[word]; bits != 0; bits &= bits - 1) {
+                int tile = (word << 6) + Long.numberOfTrailingZeros(bits);
+                int x = (tile % columns) * tileSize + 14;
+                int y = (tile / columns) * tileSize + 14;
+
+                // Regular food pellet with a small glow
+                g.setColor(Color.WHITE);
+                g.fillOval(x, y, 4, 4);
+                g.setColor(glow);
+                g.fillOval(x - 1, y - 1, 6, 6);
+            }
+        }
+
+        for (int tile : cherryTiles) {
+            g.drawImage(cherryImage, (tile % columns) * tileSize + 4, (tile / columns) * tileSize + 4, 24, 24, null);
+        }
+        g.dispose();
+
+        surfaceVersion = version;
+        eatenApplied = eatenCount;
+    }
+
+    private void eraseEaten(int[] eatenTiles, int eaten) {
+        Graphics2D g = surface.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+
+        for (int i = eatenApplied; i < eaten; i++) {
+            int tile = eatenTiles[i];
+            g.fillRect((tile % columns) * tileSize, (tile / columns) * tileSize, tileSize, tileSize);
+        }
+        g.dispose();
+        eatenApplied = eaten;
+    }
+
+    private BufferedImage createPulseFrame(GraphicsConfiguration gc, int frame) {
+        // Triangle wave so the glow fades in and back out over the cycle
+        int half = PULSE_FRAMES / 2;
+        int step = frame < half ? frame : PULSE_FRAMES - frame;
+        int alpha = 30 + step * 60 / half;
+
+        BufferedImage image = createImage(gc, tileSize, tileSize);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(new Color(255, 255, 0, alpha));
+        g.fillOval(4, 4, 24, 24);
+        g.drawImage(powerPelletImage, 8, 8, 16, 16, null);
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage createImage(GraphicsConfiguration gc, int width, int height) {
+        if (gc != null && !GraphicsEnvironment.isHeadless()) {
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}
@@ -0,0 +1,87 @@
+package utils;
+
+/**
+ * Fixed-timestep clock for the game simulation.
+ * Real time is collected in an accumulator and paid out as whole ticks, so
+ * the game runs at the same speed however often it is polled; a stall is
+ * caught up with extra ticks (up to a limit) instead of slowing the game.
+ * The leftover fraction of a tick is the interpolation factor for rendering.
+ */
+public class SimulationClock {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final long tickNanos;
+    private final int maxCatchUpTicks;
+    private long lastNanos;
+    private long accumulator;
+    private long tickCount;
+    private long droppedTicks;
+    private boolean started = false;
+
+    public SimulationClock(long tickMillis, int maxCatchUpTicks) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        this.tickNanos = tickMillis * NANOS_PER_MILLI;
+        this.maxCatchUpTicks = Math.max(1, maxCatchUpTicks);
+    }
+
+    /**
+     * Adds the real time elapsed since the previous call and returns how many
+     * simulation ticks are due. Time beyond maxCatchUpTicks is dropped so a
+     * long pause (debugger, sleep) does not fast-forward the game.
+     */
+    public int advance(long nowNanos) {
+        if (!started) {
+            started = true;
+            lastNanos = nowNanos;
+            return 0;
+        }
+
+        accumulator += Math.max(0, nowNanos - lastNanos);
+        lastNanos = nowNanos;
+
+        long due = accumulator / tickNanos;
+        if (due > maxCatchUpTicks) {
+            droppedTicks += due - maxCatchUpTicks;
+            due = maxCatchUpTicks;
+            accumulator = due * tickNanos + accumulator % tickNanos;
+        }
+        accumulator -= due * tickNanos;
+        tickCount += due;
+        return (int) due;
+    }
+
+    /**
+     * How far the current moment is between the last tick and the next one,
+     * in [0, 1]. Includes time since the last advance() so a frame drawn
+     * between polls still moves smoothly.
+     */
+    public float getAlpha(long nowNanos) {
+        if (!started) {
+            return 1f;
+        }
+        long pending = accumulator + Math.max(0, nowNanos - lastNanos);
+        return Math.min(1f, (float) pending / tickNanos);
+    }
+
+    /** Time left until the next tick is due, for a loop that sleeps between ticks. */
+    public long nanosUntilNextTick(long nowNanos) {
+        if (!started) {
+            return 0;
+        }
+        long pending = accumulator + Math.max(0, nowNanos - lastNanos);
+        return Math.max(0, tickNanos - pending);
+    }
+
+    /** Forgets accumulated time, e.g. after loading a level. */
+    public void reset() {
+        started = false;
+        accumulator = 0;
+    }
+
+    // Getters
+    public long getTickNanos() { return tickNanos; }
+    public long getTickCount() { return tickCount; }
+    public long getDroppedTicks() { return droppedTicks; }
+}
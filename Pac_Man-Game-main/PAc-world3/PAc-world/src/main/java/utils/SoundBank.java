@@ -0,0 +1,228 @@
+package utils;
+
+import javax.sound.sampled.*;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sound effects decoded once into PCM, each with a small pool of clips that
+ * are opened up front and reused. Playing an effect only rewinds and starts
+ * a clip, so it costs no parsing, no allocation and no new native line; when
+ * every clip of an effect is busy the one started longest ago is cut off
+ * and reused (voice stealing).
+ *
+ * Effects load from /sounds/ on the classpath. One that cannot be found or
+ * decoded is remembered as missing and then ignored, so it is reported once
+ * rather than on every play. With zero voices per sound, or without an audio
+ * device, only the PCM is kept, for the software mixer (AudioMixer).
+ */
+public class SoundBank {
+    public static final int DEFAULT_VOICES = 3;
+
+    private static final Sound MISSING = new Sound(null, null, null);
+
+    private final int voicesPerSound;
+    private final Map<String, Sound> sounds = new ConcurrentHashMap<>();
+    private volatile boolean linesAvailable = true;
+
+    /** @param voicesPerSound clips per effect; 0 to only decode, for the mixer */
+    public SoundBank(int voicesPerSound) {
+        this.voicesPerSound = Math.max(0, voicesPerSound);
+    }
+
+    /** Decodes and opens the given effects now, so the first play is as cheap as the rest. */
+    public void preload(String... filenames) {
+        for (String filename : filenames) {
+            get(filename);
+        }
+    }
+
+    /**
+     * The decoded effect, loading it on first use.
+     * @return null if the file is missing or cannot be decoded
+     */
+    public Sound get(String filename) {
+        Sound sound = sounds.get(filename);
+        if (sound == null) {
+            sound = sounds.computeIfAbsent(filename, this::load);
+        }
+        return sound == MISSING ? null : sound;
+    }
+
+    /**
+     * Plays an effect once on a free voice, stealing the oldest if all are busy.
+     * @return false if the effect is missing or there is no audio device
+     */
+    public boolean play(String filename) {
+        Sound sound = get(filename);
+        return sound != null && sound.play();
+    }
+
+    /** Stops and releases every clip; the decoded PCM stays usable. */
+    public void close() {
+        for (Sound sound : sounds.values()) {
+            sound.closeVoices();
+        }
+    }
+
+    private Sound load(String filename) {
+        byte[] pcm;
+        AudioFormat format;
+        try (InputStream resource = getClass().getResourceAsStream("/sounds/" + filename)) {
+            if (resource == null) {
+                System.err.println("Could not find sound file: /sounds/" + filename);
+                return MISSING;
+            }
+            AudioInputStream encoded = AudioSystem.getAudioInputStream(new BufferedInputStream(resource));
+            format = pcmFormat(encoded.getFormat());
+            try (AudioInputStream decoded = AudioSystem.getAudioInputStream(format, encoded)) {
+                pcm = readAll(decoded);
+            }
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            System.err.println("Error loading sound '" + filename + "': " + e.getMessage());
+            return MISSING;
+        }
+
+        Sound sound = new Sound(filename, format, pcm);
+        if (voicesPerSound > 0 && linesAvailable) {
+            try {
+                sound.openVoices(voicesPerSound);
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                // No (free) output device; keep the PCM and stop trying
+                System.err.println("No audio line for sound effects: " + e.getMessage());
+                sound.closeVoices();
+                linesAvailable = false;
+            }
+        }
+        return sound;
+    }
+
+    /** Signed 16-bit little-endian at the source's rate and channel count. */
+    static AudioFormat pcmFormat(AudioFormat source) {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+    }
+
+    private static byte[] readAll(AudioInputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    // Getters
+    public int getVoicesPerSound() { return voicesPerSound; }
+    public boolean isLinesAvailable() { return linesAvailable; }
+
+    /** One decoded effect and its clip pool. */
+    public static class Sound {
+        private final String name;
+        private final AudioFormat format;
+        private final byte[] pcm;
+        private Clip[] voices = new Clip[0];
+        private Clip loopVoice;
+        private int nextVoice = 0;
+        private long steals = 0;
+        private short[] samples;
+
+        Sound(String name, AudioFormat format, byte[] pcm) {
+            this.name = name;
+            this.format = format;
+            this.pcm = pcm;
+        }
+
+        private void openVoices(int count) throws LineUnavailableException {
+            voices = new Clip[count];
+            for (int i = 0; i < count; i++) {
+                voices[i] = openClip();
+            }
+        }
+
+        private Clip openClip() throws LineUnavailableException {
+            Clip clip = AudioSystem.getClip();
+            clip.open(format, pcm, 0, pcm.length);
+            return clip;
+        }
+
+        /** Voices are handed out round-robin, so the next one is also the oldest. */
+        synchronized boolean play() {
+            int count = voices.length;
+            if (count == 0) return false;
+
+            Clip voice = null;
+            for (int i = 0; i < count && voice == null; i++) {
+                Clip candidate = voices[(nextVoice + i) % count];
+                if (!candidate.isActive()) {
+                    voice = candidate;
+                    nextVoice = (nextVoice + i + 1) % count;
+                }
+            }
+            if (voice == null) {
+                voice = voices[nextVoice];
+                nextVoice = (nextVoice + 1) % count;
+                voice.stop();
+                steals++;
+            }
+            voice.setFramePosition(0);
+            voice.start();
+            return true;
+        }
+
+        /**
+         * Loops the effect (background music) on a clip of its own, opened on
+         * first use so effects that never loop do not hold an extra line.
+         * @return the looping clip, or null without an audio device
+         */
+        public synchronized Clip loop() {
+            if (voices.length == 0) return null;
+            try {
+                if (loopVoice == null) {
+                    loopVoice = openClip();
+                }
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                System.err.println("Error looping sound '" + name + "': " + e.getMessage());
+                return null;
+            }
+            loopVoice.stop();
+            loopVoice.setFramePosition(0);
+            loopVoice.loop(Clip.LOOP_CONTINUOUSLY);
+            return loopVoice;
+        }
+
+        synchronized void closeVoices() {
+            for (Clip voice : voices) {
+                if (voice != null) voice.close();
+            }
+            voices = new Clip[0];
+            if (loopVoice != null) {
+                loopVoice.close();
+                loopVoice = null;
+            }
+        }
+
+        /** The PCM as 16-bit samples (interleaved if stereo), converted on first use. */
+        public synchronized short[] getSamples() {
+            if (samples == null) {
+                samples = new short[pcm.length / 2];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = (short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8));
+                }
+            }
+            return samples;
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public AudioFormat getFormat() { return format; }
+        public byte[] getPcm() { return pcm; }
+        public int getFrameCount() { return pcm.length / format.getFrameSize(); }
+        public synchronized long getSteals() { return steals; }
+    }
+}
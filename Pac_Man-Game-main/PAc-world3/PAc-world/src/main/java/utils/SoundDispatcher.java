@@ -0,0 +1,124 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays sounds for the game loop without ever making it wait. Callers post
+ * commands to an AudioCommandQueue, which drops the oldest under overload
+ * instead of blocking, and an "audio-dispatch" thread carries them out on
+ * a SoundManager. Commands that waited longer than LATE_MICROS are counted
+ * as late, so the counters show whether audio ever falls behind gameplay.
+ */
+public class SoundDispatcher {
+    public static final long LATE_MICROS = 10_000;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int OP_PLAY = 0;
+    private static final int OP_LOOP = 1;
+    private static final int OP_STOP_MUSIC = 2;
+
+    private final SoundManager soundManager;
+    private final AudioCommandQueue queue = new AudioCommandQueue(QUEUE_CAPACITY);
+    // Sounds are posted by id so a command fits in an int
+    private final Map<String, Integer> soundIds = new ConcurrentHashMap<>();
+    private final List<String> soundNames = new ArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean waiting = false;
+    private volatile long played = 0;
+    private volatile long late = 0;
+    private volatile long worstWaitMicros = 0;
+
+    public SoundDispatcher(SoundManager soundManager) {
+        this.soundManager = soundManager;
+        thread = new Thread(this::run, "audio-dispatch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void play(String filename) {
+        post(OP_PLAY, filename);
+    }
+
+    /** Starts a sound looping as background music, replacing the current one. */
+    public void loop(String filename) {
+        post(OP_LOOP, filename);
+    }
+
+    public void stopMusic() {
+        post(OP_STOP_MUSIC, null);
+    }
+
+    private void post(int op, String filename) {
+        int id = filename == null ? 0 : idOf(filename);
+        queue.offer((id << 2) | op);
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private int idOf(String filename) {
+        Integer id = soundIds.get(filename);
+        if (id == null) {
+            synchronized (soundNames) {
+                id = soundIds.get(filename);
+                if (id == null) {
+                    id = soundNames.size();
+                    soundNames.add(filename);
+                    soundIds.put(filename, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    private String nameOf(int id) {
+        synchronized (soundNames) {
+            return soundNames.get(id);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long entry = queue.poll();
+            if (entry == AudioCommandQueue.EMPTY) {
+                // Re-check after announcing the wait so a post in between is not missed
+                waiting = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+
+            long waited = AudioCommandQueue.ageMicros(entry, System.nanoTime());
+            if (waited > LATE_MICROS) late++;
+            if (waited > worstWaitMicros) worstWaitMicros = waited;
+
+            int command = AudioCommandQueue.command(entry);
+            int op = command & 3;
+            if (op == OP_STOP_MUSIC) {
+                soundManager.stopBackgroundMusic();
+            } else {
+                soundManager.playSound(nameOf(command >>> 2), op == OP_LOOP);
+            }
+            played++;
+        }
+    }
+
+    /** Stops the audio thread; commands still queued are discarded. */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    // Getters
+    public SoundManager getSoundManager() { return soundManager; }
+    public long getPlayed() { return played; }
+    public long getDropped() { return queue.getDropped(); }
+    public long getLate() { return late; }
+    public long getWorstWaitMicros() { return worstWaitMicros; }
+}
@@ -1,71 +1,122 @@
 package utils;
 
 import javax.sound.sampled.*;
-import java.io.InputStream;
-import java.io.BufferedInputStream;
 
+/**
+ * Plays the game's sounds from a SoundBank shared by every SoundManager,
+ * which decodes the effects once and reuses their clips.
+ *
+ * Background music is streamed by one shared MusicPlayer rather than held
+ * in a clip, and a new track crossfades with the old one.
+ *
+ * In mixer mode (-Dpacman.mixer=true) nothing opens clips: every manager
+ * plays through one shared AudioMixer on a single output line, with its
+ * buffer set by -Dpacman.mixerBufferMillis, and the music is mixed in there
+ * too. If the mixer cannot open a line the managers fall back to clips.
+ */
 public class SoundManager {
+    // Decoded when the first SoundManager is created (the main menu, at startup)
+    private static final String[] EFFECTS = {
+            "begin.wav", "click.wav", "eatenPacgum.wav", "pacman_death.wav", "pacman_eatghost.wav", "win.wav"
+    };
+    private static final float MUSIC_GAIN = 0.6f;
+    private static final int MUSIC_BUFFER_MILLIS = 200;
+    private static final int MUSIC_FADE_MILLIS = 750;
+    private static SoundBank sharedBank;
+    private static AudioMixer sharedMixer;
+    private static MusicPlayer sharedMusic;
+
+    private final SoundBank bank;
+    private final AudioMixer mixer;
+    private final MusicPlayer music;
     private Clip backgroundMusic;
     private boolean soundEnabled = true;
-    
+
+    public SoundManager() {
+        this.bank = sharedBank();
+        this.mixer = sharedMixer;
+        this.music = sharedMusic;
+    }
+
+    private static synchronized SoundBank sharedBank() {
+        if (sharedBank == null) {
+            if (Boolean.getBoolean("pacman.mixer")) {
+                AudioMixer mixer = new AudioMixer(Integer.getInteger("pacman.mixerBufferMillis", 40));
+                if (mixer.start()) {
+                    sharedMixer = mixer;
+                }
+            }
+            // With the mixer running the bank only needs the PCM
+            sharedBank = new SoundBank(sharedMixer != null ? 0 : SoundBank.DEFAULT_VOICES);
+            sharedBank.preload(EFFECTS);
+
+            MusicPlayer music = new MusicPlayer(MUSIC_BUFFER_MILLIS);
+            music.setGain(MUSIC_GAIN);
+            if (sharedMixer != null) {
+                sharedMixer.setMusic(music);
+                sharedMusic = music;
+            } else if (music.start()) {
+                sharedMusic = music;
+            }
+        }
+        return sharedBank;
+    }
+
     public void setSoundEnabled(boolean enabled) {
         this.soundEnabled = enabled;
         if (!enabled) {
             stopBackgroundMusic();
         }
     }
-    
+
     public void playSound(String filename, boolean loop) {
         if (!soundEnabled) return;
-        
-        try {
-            InputStream audioSrc = getClass().getResourceAsStream("/sounds/" + filename);
-            if (audioSrc == null) {
-                System.err.println("Could not find sound file: /sounds/" + filename);
-                return;
-            }
-            
-            InputStream bufferedIn = new BufferedInputStream(audioSrc);
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(bufferedIn);
-            
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            
-            if (loop) {
-                if (backgroundMusic != null && backgroundMusic.isRunning()) {
-                    backgroundMusic.stop();
-                    backgroundMusic.close();
-                }
-                clip.loop(Clip.LOOP_CONTINUOUSLY);
-                backgroundMusic = clip;
+
+        if (loop && music != null) {
+            music.play(filename, true, MUSIC_FADE_MILLIS);
+        } else if (mixer != null) {
+            mixer.play(bank.get(filename), 1f, false);
+        } else if (loop) {
+            // No audio line for streaming either; this only happens without a device
+            SoundBank.Sound sound = bank.get(filename);
+            if (sound == null) return;
+            Clip music = sound.loop();
+            if (backgroundMusic != null && backgroundMusic != music) {
+                backgroundMusic.stop();
             }
-            
-            clip.start();
-            
-        } catch (Exception e) {
-            System.err.println("Error playing sound '" + filename + "': " + e.getMessage());
+            backgroundMusic = music;
+        } else {
+            bank.play(filename);
         }
     }
-    
+
     public void stopBackgroundMusic() {
+        if (music != null) {
+            music.stop(MUSIC_FADE_MILLIS);
+        }
         if (backgroundMusic != null) {
-            if (backgroundMusic.isRunning()) {
-                backgroundMusic.stop();
-            }
-            backgroundMusic.close();
+            // The clip belongs to the bank and is reused, so it is stopped, not closed
+            backgroundMusic.stop();
             backgroundMusic = null;
         }
     }
-    
+
     public void toggleSound() {
         setSoundEnabled(!soundEnabled);
     }
-    
+
     public boolean isSoundEnabled() {
         return soundEnabled;
     }
-    
+
     public void cleanup() {
         stopBackgroundMusic();
     }
-}
\ No newline at end of file
+
+    // Getters
+    public SoundBank getBank() { return bank; }
+    /** The shared mixer, or null when playing through clips. */
+    public AudioMixer getMixer() { return mixer; }
+    /** The shared music stream, or null without an audio device. */
+    public MusicPlayer getMusic() { return music; }
+}
@@ -0,0 +1,37 @@
+package utils;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Same-sized sprites packed side by side into one image (see
+ * ImageManager.loadAtlas). Every sprite drawn from it comes from the same
+ * source surface, which the Java2D pipeline caches once, and cells are
+ * copied at their own size, never rescaled.
+ */
+public class SpriteAtlas {
+    private final BufferedImage sheet;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int cellCount;
+
+    SpriteAtlas(BufferedImage sheet, int cellWidth, int cellHeight, int cellCount) {
+        this.sheet = sheet;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.cellCount = cellCount;
+    }
+
+    /** Draws one cell with its top-left corner at (x, y). */
+    public void draw(Graphics2D g2d, int cell, int x, int y) {
+        int sourceX = cell * cellWidth;
+        g2d.drawImage(sheet, x, y, x + cellWidth, y + cellHeight,
+                sourceX, 0, sourceX + cellWidth, cellHeight, null);
+    }
+
+    // Getters
+    public BufferedImage getSheet() { return sheet; }
+    public int getCellWidth() { return cellWidth; }
+    public int getCellHeight() { return cellHeight; }
+    public int getCellCount() { return cellCount; }
+}
@@ -0,0 +1,75 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue of ints for exactly one producer thread and one
+ * consumer thread, e.g. key codes from the EDT to the simulation thread.
+ * A power-of-two ring indexed by two ever-increasing counters; each side
+ * only writes its own counter, and publishes it with an ordered store, so
+ * neither offer() nor poll() ever blocks or allocates.
+ */
+public class SpscIntQueue {
+    /** Returned by poll() when the queue is empty. */
+    public static final int EMPTY = Integer.MIN_VALUE;
+
+    private final int[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to read, owned by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, owned by the producer
+    // Each side's cached view of the other's counter, to avoid re-reading it every call
+    private long cachedHead = 0;
+    private long cachedTail = 0;
+
+    public SpscIntQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Producer side. EMPTY itself cannot be queued.
+     * @return false if the queue is full and the value was dropped
+     */
+    public boolean offer(int value) {
+        long t = tail.get();
+        if (t - cachedHead >= ring.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= ring.length) {
+                return false;
+            }
+        }
+        ring[(int) t & mask] = value;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /** Consumer side; the oldest value, or EMPTY. */
+    public int poll() {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return EMPTY;
+            }
+        }
+        int value = ring[(int) h & mask];
+        head.lazySet(h + 1);
+        return value;
+    }
+
+    /** Approximate when called while the other side is active. */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,130 @@
+package utils;
+
+/**
+ * Compact occupancy grid for the maze, one byte per tile.
+ * Built once when a map is loaded so wall queries are a single array lookup
+ * instead of a scan over every wall entity.
+ */
+public class TileGrid {
+    public static final byte EMPTY = 0;
+    public static final byte WALL = 1;
+
+    private final int columns;
+    private final int rows;
+    private final int tileSize;
+    private final byte[] cells;
+
+    public TileGrid(int columns, int rows, int tileSize) {
+        this.columns = columns;
+        this.rows = rows;
+        this.tileSize = tileSize;
+        this.cells = new byte[columns * rows];
+    }
+
+    public void setWall(int col, int row) {
+        cells[row * columns + col] = WALL;
+    }
+
+    public boolean isInside(int col, int row) {
+        return col >= 0 && col < columns && row >= 0 && row < rows;
+    }
+
+    /**
+     * Tiles outside the map are never walls, matching the old behaviour
+     * where only wall entities placed on the map blocked movement.
+     */
+    public boolean isWall(int col, int row) {
+        return isInside(col, row) && cells[row * columns + col] == WALL;
+    }
+
+    public boolean isWalkable(int col, int row) {
+        return isInside(col, row) && cells[row * columns + col] != WALL;
+    }
+
+    /**
+     * A row is a tunnel when both of its edge tiles are open, so leaving
+     * the map on one side re-enters it on the other.
+     */
+    public boolean isPortalRow(int row) {
+        return isWalkable(0, row) && isWalkable(columns - 1, row);
+    }
+
+    /**
+     * Column index after tunnel wrapping, or -1 if the column is off the
+     * map in a row that has no tunnel.
+     */
+    public int wrapColumn(int col, int row) {
+        if (col >= 0 && col < columns) return col;
+        return isPortalRow(row) ? Math.floorMod(col, columns) : -1;
+    }
+
+    /**
+     * Flat tile index (row * columns + col) after tunnel wrapping,
+     * or -1 if the position is off the map.
+     */
+    public int tileIndex(int col, int row) {
+        if (row < 0 || row >= rows) return -1;
+        int wrapped = wrapColumn(col, row);
+        return wrapped < 0 ? -1 : row * columns + wrapped;
+    }
+
+    /**
+     * Index of the open tile closest to (col, row), searching outward ring
+     * by ring, or -1 if the map has no open tile at all.
+     */
+    public int nearestWalkableTile(int col, int row) {
+        col = Math.max(0, Math.min(columns - 1, col));
+        row = Math.max(0, Math.min(rows - 1, row));
+        if (isWalkable(col, row)) return row * columns + col;
+
+        int maxRadius = columns + rows;
+        for (int radius = 1; radius < maxRadius; radius++) {
+            for (int d = -radius; d <= radius; d++) {
+                int rest = radius - Math.abs(d);
+                if (isWalkable(col + d, row + rest)) return (row + rest) * columns + col + d;
+                if (isWalkable(col + d, row - rest)) return (row - rest) * columns + col + d;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Direction of a single step between two neighbouring tile indices.
+     * A jump of more than one column means the step went through a tunnel.
+     */
+    public Direction stepDirection(int fromTile, int toTile) {
+        int dc = toTile % columns - fromTile % columns;
+        int dr = toTile / columns - fromTile / columns;
+        if (dr < 0) return Direction.UP;
+        if (dr > 0) return Direction.DOWN;
+        if (dc == -1 || dc > 1) return Direction.LEFT;
+        return Direction.RIGHT;
+    }
+
+    /**
+     * Checks whether a pixel rectangle overlaps any wall tile.
+     * Edges that only touch a wall do not count, same as Rectangle.intersects.
+     */
+    public boolean overlapsWall(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return false;
+
+        int firstCol = Math.floorDiv(x, tileSize);
+        int lastCol = Math.floorDiv(x + width - 1, tileSize);
+        int firstRow = Math.floorDiv(y, tileSize);
+        int lastRow = Math.floorDiv(y + height - 1, tileSize);
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                if (isWall(c, r)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Getters
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+    public int getTileSize() { return tileSize; }
+}
@@ -0,0 +1,100 @@
+package utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * The static wall layer of a maze, rendered once into an offscreen image.
+ * Walls never move, so each frame only has to copy one image instead of
+ * drawing every wall sprite. A VolatileImage copy keeps the blit on the GPU
+ * where possible and is restored from the prerendered image if the surface
+ * is lost.
+ */
+public class WallLayer {
+    private final TileGrid grid;
+    private final Image wallImage;
+    private final int width;
+    private final int height;
+    private BufferedImage prerendered;
+    private VolatileImage accelerated;
+
+    public WallLayer(TileGrid grid, Image wallImage) {
+        this.grid = grid;
+        this.wallImage = wallImage;
+        this.width = grid.getColumns() * grid.getTileSize();
+        this.height = grid.getRows() * grid.getTileSize();
+    }
+
+    public void draw(Graphics2D g2d) {
+        GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+        if (prerendered == null) {
+            prerender(gc);
+        }
+
+        // Offscreen or printer surfaces cannot hold a VolatileImage
+        if (gc == null || gc.getDevice().getType() != GraphicsDevice.TYPE_RASTER_SCREEN) {
+            g2d.drawImage(prerendered, 0, 0, null);
+            return;
+        }
+
+        do {
+            int status = accelerated == null
+                    ? VolatileImage.IMAGE_INCOMPATIBLE
+                    : accelerated.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (accelerated != null) {
+                    accelerated.flush();
+                }
+                accelerated = gc.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+                restore();
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                restore();
+            }
+            g2d.drawImage(accelerated, 0, 0, null);
+        } while (accelerated.contentsLost());
+    }
+
+    private void prerender(GraphicsConfiguration gc) {
+        if (gc != null && !GraphicsEnvironment.isHeadless()) {
+            prerendered = gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        } else {
+            prerendered = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        int tileSize = grid.getTileSize();
+        Graphics2D g = prerendered.createGraphics();
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int c = 0; c < grid.getColumns(); c++) {
+                if (grid.isWall(c, r)) {
+                    g.drawImage(wallImage, c * tileSize, r * tileSize, tileSize, tileSize, null);
+                }
+            }
+        }
+        g.dispose();
+    }
+
+    private void restore() {
+        Graphics2D g = accelerated.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(prerendered, 0, 0, null);
+        g.dispose();
+    }
+
+    public void dispose() {
+        if (accelerated != null) {
+            accelerated.flush();
+            accelerated = null;
+        }
+        if (prerendered != null) {
+            prerendered.flush();
+            prerendered = null;
+        }
+    }
+}